@@ -0,0 +1,48 @@
+package com.example.benchmarks;
+
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.util.Arrays;
+
+/**
+ * S3 stand-in holding one object in memory, serving HEAD and ranged GETs without any network.
+ */
+public class InMemoryS3Client implements S3Client {
+
+    private final byte[] object;
+
+    public InMemoryS3Client(byte[] object) {
+        this.object = object;
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest request) {
+        return HeadObjectResponse.builder().contentLength((long) object.length).eTag("\"synthetic\"").build();
+    }
+
+    @Override
+    public ResponseBytes<GetObjectResponse> getObjectAsBytes(GetObjectRequest request) {
+        byte[] bytes = object;
+        if (request.range() != null) {
+            String[] range = request.range().replace("bytes=", "").split("-");
+            int first = Integer.parseInt(range[0]);
+            int last = Math.min(Integer.parseInt(range[1]), object.length - 1);
+            bytes = Arrays.copyOfRange(object, first, last + 1);
+        }
+        return ResponseBytes.fromByteArray(GetObjectResponse.builder().contentLength((long) bytes.length).build(), bytes);
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic CSV datasets in the layout of the original usage dataset: two numeric
+ * features and a class label in 0..2.
+ */
+public final class SyntheticData {
+
+    public static final String HEADER = "daily_usage_gb,peak_usage_gb,label";
+
+    private SyntheticData() {
+    }
+
+    /**
+     * @param withHeader whether the first line is {@link #HEADER}, chunk ranges never include it
+     */
+    public static byte[] csv(int rows, boolean withHeader) {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder csv = new StringBuilder(rows * 20 + HEADER.length() + 1);
+        if (withHeader) {
+            csv.append(HEADER).append('\n');
+        }
+        for (int i = 0; i < rows; i++) {
+            double daily = random.nextDouble(0, 50);
+            double peak = daily + random.nextDouble(0, 20);
+            int label = daily < 10 ? 0 : daily < 30 ? 1 : 2;
+            csv.append(String.format("%.3f", daily)).append(',')
+                    .append(String.format("%.3f", peak)).append(',')
+                    .append(label).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
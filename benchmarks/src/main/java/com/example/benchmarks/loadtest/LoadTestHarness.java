@@ -0,0 +1,369 @@
+package com.example.benchmarks.loadtest;
+
+import com.example.benchmarks.SyntheticData;
+import com.example.master_service.MasterServiceApplication;
+import com.example.master_service.model.ChunkState;
+import com.example.worker_service.WorkerServiceApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.ImmutableMongod;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.embed.mongo.types.DistributionBaseUrl;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.transitions.Start;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.bson.Document;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the master and N workers in one JVM against embedded Kafka, MongoDB and a local S3
+ * stand-in, drives concurrent /api/train submissions and reports job latency percentiles,
+ * chunk throughput and per-worker row throughput.
+ *
+ * <p>Options, all {@code --name=value}: workers (2), worker-slots (1), jobs (8), concurrency (4),
+ * rows (200000), chunk-bytes (1048576), epochs (1), partitions (8), chunk-cache (false),
+ * update-encoding (FLOAT32), mongo-uri (blank starts an embedded mongod 7.0), mongo-download-url
+ * (blank downloads mongod from fastdl.mongodb.org), timeout-s (900).
+ *
+ * <p>Workers record each finished chunk with a pipeline update, so the harness refuses to start
+ * against a server without them rather than report numbers that only measure retries.
+ */
+public class LoadTestHarness {
+
+    private static final String BUCKET = "loadtest";
+    private static final String KEY = "data.csv";
+
+    private final Map<String, String> options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private String masterUrl;
+
+    LoadTestHarness(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "true");
+        }
+        int failed = new LoadTestHarness(options).run();
+        System.exit(failed > 0 ? 1 : 0); // ND4J and Kafka leave non-daemon threads behind
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(option(name, String.valueOf(defaultValue)));
+    }
+
+    int run() throws Exception {
+        int workers = intOption("workers", 2);
+        int slots = intOption("worker-slots", 1);
+        int jobs = intOption("jobs", 8);
+        int concurrency = intOption("concurrency", 4);
+        int rows = intOption("rows", 200_000);
+        int partitions = intOption("partitions", 8);
+        Path scratch = Files.createTempDirectory("loadtest-");
+
+        // Every S3 client in the JVM signs with these, the stand-in does not check them
+        System.setProperty("aws.accessKeyId", "loadtest");
+        System.setProperty("aws.secretAccessKey", "loadtest");
+
+        byte[] dataset = SyntheticData.csv(rows, true);
+        EmbeddedKafkaKraftBroker kafka = new EmbeddedKafkaKraftBroker(1, partitions);
+        TransitionWalker.ReachedState<RunningMongodProcess> mongod = null;
+        try (LocalS3Server s3 = new LocalS3Server()) {
+            s3.put(BUCKET, KEY, dataset);
+            String mongoUri = option("mongo-uri", "");
+            if (mongoUri.isBlank()) {
+                mongod = startMongod();
+                ServerAddress address = mongod.current().getServerAddress();
+                mongoUri = "mongodb://" + address.getHost() + ":" + address.getPort() + "/trainingdb";
+            }
+            requirePipelineUpdates(mongoUri);
+            kafka.afterPropertiesSet();
+
+            Map<String, String> shared = new LinkedHashMap<>();
+            shared.put("server.port", "0");
+            shared.put("spring.main.banner-mode", "off");
+            shared.put("spring.data.mongodb.uri", mongoUri);
+            shared.put("spring.kafka.bootstrap-servers", kafka.getBrokersAsString());
+            shared.put("aws.region", "ap-south-1");
+            shared.put("aws.s3.endpoint", s3.getEndpoint());
+            shared.put("logging.level.root", option("log-level", "WARN"));
+
+            Map<String, String> master = new LinkedHashMap<>(shared);
+            master.put("training.tasks.partitions", String.valueOf(partitions));
+            master.put("training.results.partitions", String.valueOf(partitions));
+            master.put("training.chunk.target-bytes", option("chunk-bytes", "1048576"));
+            master.put("training.chunk.min-bytes", "65536");
+            master.put("training.submit.queue-capacity", String.valueOf(Math.max(100, jobs)));
+            ConfigurableApplicationContext masterContext = start(MasterServiceApplication.class, master);
+            masterUrl = "http://localhost:" + masterContext.getEnvironment().getProperty("local.server.port");
+
+            for (int i = 1; i <= workers; i++) {
+                Map<String, String> worker = new LinkedHashMap<>(shared);
+                worker.put("worker.id", "worker-" + i);
+                worker.put("worker.training.max-concurrent", String.valueOf(slots));
+                worker.put("worker.listener.concurrency", String.valueOf(slots));
+                worker.put("worker.chunk-cache.enabled", option("chunk-cache", "false"));
+                worker.put("worker.chunk-cache.dir", scratch.resolve("worker-" + i + "/chunk-cache").toString());
+                worker.put("worker.checkpoint.dir", scratch.resolve("worker-" + i + "/checkpoints").toString());
+                start(WorkerServiceApplication.class, worker);
+            }
+            awaitWorkers(kafka.getBrokersAsString(), workers * slots);
+
+            System.out.printf("Running %d jobs, %d at a time, over %d rows (%d bytes) with %d workers x %d slots%n",
+                    jobs, concurrency, rows, dataset.length, workers, slots);
+            long started = System.nanoTime();
+            List<JobResult> results = drive(jobs, concurrency);
+            double wallSeconds = (System.nanoTime() - started) / 1e9;
+
+            report(results, wallSeconds, masterContext.getBean(MongoTemplate.class), dataset);
+            return (int) results.stream().filter(result -> !"COMPLETED".equals(result.status)).count();
+        } finally {
+            Collections.reverse(contexts);
+            contexts.forEach(ConfigurableApplicationContext::close);
+            kafka.destroy();
+            if (mongod != null) {
+                mongod.close();
+            }
+        }
+    }
+
+    /**
+     * Starts a real mongod, so pipeline updates and findAndModify behave as in production. The
+     * binary is downloaded once and cached under ~/.embedmongo.
+     */
+    private TransitionWalker.ReachedState<RunningMongodProcess> startMongod() {
+        ImmutableMongod mongod = Mongod.instance();
+        String mirror = option("mongo-download-url", "");
+        if (!mirror.isBlank()) {
+            mongod = mongod.withDistributionBaseUrl(Start.to(DistributionBaseUrl.class)
+                    .initializedWith(DistributionBaseUrl.of(mirror)));
+        }
+        try {
+            return mongod.start(Version.Main.V7_0);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Could not start an embedded mongod, pass --mongo-download-url or --mongo-uri"
+                    + " instead", e);
+        }
+    }
+
+    /**
+     * Fails unless the server runs update pipelines (MongoDB 4.2 and later). Without them every
+     * chunk's progress write fails and retries, and the run would measure backoff instead of training.
+     */
+    static void requirePipelineUpdates(String mongoUri) {
+        String database = new ConnectionString(mongoUri).getDatabase();
+        try (MongoClient client = MongoClients.create(mongoUri)) {
+            MongoCollection<Document> probe = client.getDatabase(database != null ? database : "test")
+                    .getCollection("loadtest_probe");
+            probe.replaceOne(Filters.eq("_id", "probe"), new Document("count", 1), new ReplaceOptions().upsert(true));
+            probe.updateOne(Filters.eq("_id", "probe"),
+                    List.of(new Document("$set", new Document("count", new Document("$add", List.of("$count", 1))))));
+            probe.drop();
+        } catch (MongoException | IllegalArgumentException e) {
+            throw new IllegalStateException("MongoDB at " + mongoUri + " does not run pipeline updates, which the"
+                    + " workers need to record progress. Use MongoDB 4.2 or later", e);
+        }
+    }
+
+    /**
+     * Starts a service with its own application.properties as defaults. Both services ship a
+     * file of that name, so the classpath lookup is switched off and the right one is read from
+     * the service's jar.
+     */
+    private ConfigurableApplicationContext start(Class<?> application, Map<String, String> overrides) throws IOException {
+        Properties defaults = new Properties();
+        URL location = application.getProtectionDomain().getCodeSource().getLocation();
+        URL properties = location.getPath().endsWith(".jar")
+                ? new URL("jar:" + location + "!/application.properties")
+                : new URL(location, "application.properties");
+        try (InputStream in = properties.openStream()) {
+            defaults.load(in);
+        }
+        List<String> args = new ArrayList<>();
+        args.add("--spring.config.name=loadtest-none");
+        overrides.forEach((name, value) -> args.add("--" + name + "=" + value));
+        Map<String, Object> defaultProperties = new HashMap<>();
+        defaults.forEach((name, value) -> defaultProperties.put((String) name, value));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(application)
+                .properties(defaultProperties)
+                .run(args.toArray(String[]::new));
+        contexts.add(context);
+        return context;
+    }
+
+    private void awaitWorkers(String bootstrapServers, int consumers) throws Exception {
+        try (AdminClient admin = AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers))) {
+            long deadline = System.currentTimeMillis() + 120_000;
+            while (System.currentTimeMillis() < deadline) {
+                int members = admin.describeConsumerGroups(List.of("workers")).all().get(10, TimeUnit.SECONDS)
+                        .get("workers").members().size();
+                if (members >= consumers) {
+                    return;
+                }
+                Thread.sleep(500);
+            }
+            throw new IllegalStateException("Workers did not join the consumer group in time");
+        }
+    }
+
+    private List<JobResult> drive(int jobs, int concurrency) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<JobResult>> futures = new ArrayList<>();
+            for (int i = 0; i < jobs; i++) {
+                futures.add(clients.submit(this::runJob)); // Closed loop, each client waits for its job
+            }
+            List<JobResult> results = new ArrayList<>();
+            for (Future<JobResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private JobResult runJob() throws Exception {
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(intOption("timeout-s", 900));
+        long submitted = System.nanoTime();
+        String body = objectMapper.writeValueAsString(Map.of(
+                "datasetUrl", "s3://" + BUCKET + "/" + KEY,
+                "model", Map.of("epochs", intOption("epochs", 1), "updateEncoding", option("update-encoding", "FLOAT32"))));
+        String trainingId;
+        while (true) {
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(masterUrl + "/api/train"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 202) {
+                trainingId = response.body();
+                break;
+            }
+            if (response.statusCode() != 429) {
+                throw new IllegalStateException("Submission failed with " + response.statusCode() + ": " + response.body());
+            }
+            Thread.sleep(200); // Planning queue full, back off like a client would
+        }
+        while (System.nanoTime() - submitted < timeoutNanos) {
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(masterUrl + "/api/status/" + trainingId))
+                    .GET().build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 200) {
+                JsonNode status = objectMapper.readTree(response.body());
+                String state = status.path("status").asText();
+                if ("COMPLETED".equals(state) || "FAILED".equals(state)) {
+                    return new JobResult(trainingId, state, System.nanoTime() - submitted, status.path("error").asText(null));
+                }
+            }
+            Thread.sleep(100);
+        }
+        return new JobResult(trainingId, "TIMED_OUT", System.nanoTime() - submitted, null);
+    }
+
+    private void report(List<JobResult> results, double wallSeconds, MongoTemplate mongoTemplate, byte[] dataset) {
+        List<Double> latencies = results.stream().filter(result -> "COMPLETED".equals(result.status))
+                .map(result -> result.latencyNanos / 1e6).sorted().toList();
+        results.stream().filter(result -> !"COMPLETED".equals(result.status)).forEach(result ->
+                System.out.printf("Job %s ended %s: %s%n", result.trainingId, result.status, result.error));
+
+        List<String> ids = results.stream().map(result -> result.trainingId).toList();
+        List<ChunkState> chunks = mongoTemplate.find(new Query(Criteria.where("trainingId").in(ids).and("state").is("DONE")),
+                ChunkState.class);
+        Map<String, long[]> perWorker = new TreeMap<>(); // chunks, rows, busy millis
+        for (ChunkState chunk : chunks) {
+            long[] totals = perWorker.computeIfAbsent(String.valueOf(chunk.getWorkerId()), worker -> new long[3]);
+            totals[0]++;
+            totals[1] += countRows(dataset, chunk.getDescriptor().getStartByte(), chunk.getDescriptor().getEndByte());
+            if (chunk.getAssignedAt() != null && chunk.getFinishedAt() != null) {
+                totals[2] += Duration.between(chunk.getAssignedAt(), chunk.getFinishedAt()).toMillis();
+            }
+        }
+
+        System.out.printf("%nJobs: %d completed, %d not completed, wall time %.1f s%n", latencies.size(),
+                results.size() - latencies.size(), wallSeconds);
+        if (!latencies.isEmpty()) {
+            System.out.printf("Job latency: p50 %.0f ms, p99 %.0f ms, max %.0f ms%n", percentile(latencies, 50),
+                    percentile(latencies, 99), latencies.get(latencies.size() - 1));
+        }
+        System.out.printf("Throughput: %.2f chunks/s (%d chunks)%n", chunks.size() / wallSeconds, chunks.size());
+        System.out.printf("%-12s %8s %12s %12s %14s%n", "worker", "chunks", "rows", "rows/s", "rows/busy-s");
+        perWorker.forEach((worker, totals) -> System.out.printf("%-12s %8d %12d %12.0f %14.0f%n", worker, totals[0],
+                totals[1], totals[1] / wallSeconds, totals[2] > 0 ? totals[1] * 1000.0 / totals[2] : 0));
+    }
+
+    static double percentile(List<Double> sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size()); // Nearest rank
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    private static long countRows(byte[] dataset, long start, long end) {
+        long rows = 0;
+        for (long i = start; i < end; i++) {
+            if (dataset[(int) i] == '\n') {
+                rows++;
+            }
+        }
+        return end > start && dataset[(int) end - 1] != '\n' ? rows + 1 : rows;
+    }
+
+    private static class JobResult {
+        private final String trainingId;
+        private final String status;
+        private final long latencyNanos;
+        private final String error;
+
+        JobResult(String trainingId, String status, long latencyNanos, String error) {
+            this.trainingId = trainingId;
+            this.status = status;
+            this.latencyNanos = latencyNanos;
+            this.error = error;
+        }
+    }
+}
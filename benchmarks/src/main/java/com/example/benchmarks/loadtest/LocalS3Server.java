@@ -0,0 +1,146 @@
+package com.example.benchmarks.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal S3-compatible stand-in for path-style requests: HEAD, ranged GET with If-Match, PUT
+ * and DELETE of objects held in memory. Enough for chunk planning, chunk reads and checkpoint
+ * mirroring; request signatures are not checked.
+ */
+public class LocalS3Server implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Map<String, String> etags = new ConcurrentHashMap<>(); // Hashed once per write, not per read
+
+    public LocalS3Server() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 128);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newFixedThreadPool(32));
+        server.start();
+    }
+
+    public String getEndpoint() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void put(String bucket, String key, byte[] data) {
+        store(bucket + "/" + key, data);
+    }
+
+    private void store(String path, byte[] data) {
+        etags.put(path, etag(data));
+        objects.put(path, data);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath().substring(1); // bucket/key
+            byte[] object = objects.get(path);
+            switch (exchange.getRequestMethod()) {
+                case "PUT" -> {
+                    byte[] body = exchange.getRequestBody().readAllBytes();
+                    boolean chunked = exchange.getRequestHeaders().containsKey("x-amz-decoded-content-length");
+                    store(path, chunked ? decodeAwsChunked(body) : body);
+                    exchange.getResponseHeaders().add("ETag", etags.get(path));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "DELETE" -> {
+                    objects.remove(path);
+                    etags.remove(path);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                case "HEAD" -> {
+                    if (object == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    exchange.getResponseHeaders().add("ETag", etags.get(path));
+                    exchange.getResponseHeaders().add("Content-Length", String.valueOf(object.length));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "GET" -> get(exchange, object, etags.get(path));
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    private void get(HttpExchange exchange, byte[] object, String etag) throws IOException {
+        if (object == null) {
+            byte[] error = "<Error><Code>NoSuchKey</Code><Message>Not found</Message></Error>".getBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/xml");
+            exchange.sendResponseHeaders(404, error.length);
+            exchange.getResponseBody().write(error);
+            return;
+        }
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch != null && !ifMatch.equals(etag)) {
+            exchange.sendResponseHeaders(412, -1);
+            return;
+        }
+        int first = 0;
+        int last = object.length - 1;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null) {
+            String[] bounds = range.replace("bytes=", "").split("-");
+            first = Integer.parseInt(bounds[0]);
+            last = Math.min(Integer.parseInt(bounds[1]), object.length - 1);
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + first + "-" + last + "/" + object.length);
+        }
+        int length = last - first + 1;
+        exchange.getResponseHeaders().add("ETag", etag);
+        exchange.sendResponseHeaders(range != null ? 206 : 200, length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(object, first, length);
+        }
+    }
+
+    /**
+     * Strips the signed chunk framing the SDK uses for uploads over plain HTTP:
+     * {@code <hex size>;chunk-signature=...\r\n<data>\r\n}, ending with a zero-size chunk.
+     */
+    static byte[] decodeAwsChunked(byte[] body) {
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(body.length);
+        int position = 0;
+        while (position < body.length) {
+            int lineEnd = position;
+            while (body[lineEnd] != '\r') {
+                lineEnd++;
+            }
+            String sizeField = new String(body, position, lineEnd - position, StandardCharsets.US_ASCII).split(";")[0];
+            int size = Integer.parseInt(sizeField.strip(), 16);
+            if (size == 0) {
+                break; // Trailing checksum headers, if any, follow the last chunk
+            }
+            decoded.write(body, lineEnd + 2, size);
+            position = lineEnd + 2 + size + 2;
+        }
+        return decoded.toByteArray();
+    }
+
+    private static String etag(byte[] object) {
+        try {
+            return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(object)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("MD5 not available", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.master_service.service;
+
+import com.example.benchmarks.InMemoryS3Client;
+import com.example.benchmarks.SyntheticData;
+import com.example.master_service.model.ChunkDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Planning newline-aligned chunk ranges over a dataset, which replaced splitting and
+ * re-uploading it. The S3 stand-in serves ranged reads from memory, so this measures the
+ * boundary search and the number of reads it issues, not network latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkPlannerBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    @Param({"65536", "1048576"})
+    private long targetChunkBytes;
+
+    private ChunkPlanner planner;
+
+    @Setup
+    public void setUp() {
+        planner = new ChunkPlanner();
+        ReflectionTestUtils.setField(planner, "s3Client", new InMemoryS3Client(SyntheticData.csv(rows, true)));
+        ReflectionTestUtils.setField(planner, "targetChunkBytes", targetChunkBytes);
+        ReflectionTestUtils.setField(planner, "minChunkBytes", 4096L);
+        ReflectionTestUtils.setField(planner, "maxChunks", 1024);
+        // No KafkaAdmin, so parallelism falls back to 1 and the chunk count follows the target size
+    }
+
+    @Benchmark
+    public List<ChunkDescriptor> plan() {
+        return planner.plan("bench", "bucket", "data.csv");
+    }
+}
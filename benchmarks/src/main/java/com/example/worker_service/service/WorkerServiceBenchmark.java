@@ -0,0 +1,77 @@
+package com.example.worker_service.service;
+
+import com.example.worker_service.model.LayerSpec;
+import com.example.worker_service.model.MessageCodec;
+import com.example.worker_service.model.ModelSpec;
+import com.example.worker_service.model.ParameterUpdate;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-chunk work a worker does after training: copying parameters out of the network for the
+ * parameter update, encoding it for Kafka, and rendering and BSON-encoding the progress update sent to MongoDB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkerServiceBenchmark {
+
+    @Param({"100", "1000"})
+    private int hiddenWidth;
+
+    private MultiLayerNetwork model;
+    private Map<String, float[]> params;
+    private final DocumentCodec codec = new DocumentCodec();
+    private int chunkIndex;
+
+    @Setup
+    public void setUp() {
+        ModelSpec spec = new ModelSpec();
+        spec.setLayers(List.of(new LayerSpec(hiddenWidth, "RELU"), new LayerSpec(hiddenWidth, "RELU")));
+        model = ModelTemplateCache.build(spec, 32, 3);
+        params = WorkerService.extractParams(model);
+    }
+
+    @Benchmark
+    public Map<String, float[]> extractParams() {
+        return WorkerService.extractParams(model);
+    }
+
+    @Benchmark
+    public byte[] encodeParameterUpdate() {
+        return MessageCodec.encodeUpdate(new ParameterUpdate("bench", chunkIndex++ & 1023, 1024, 10_000, params));
+    }
+
+    @Benchmark
+    public int encodeProgressUpdate() {
+        List<Document> pipeline = WorkerService.progressUpdate(chunkIndex++ & 1023).toPipeline(Aggregation.DEFAULT_CONTEXT);
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, new Document("u", pipeline), EncoderContext.builder().build());
+        }
+        return buffer.getSize();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.worker_service.util;
+
+import com.example.benchmarks.SyntheticData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a chunk, from CSV and from the worker's binary chunk cache, and assembling its
+ * minibatches for one epoch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomDataSetIteratorBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    @Param({"32", "512"})
+    private int batchSize;
+
+    private byte[] csv;
+    private CustomDataSetIterator loaded;
+    private Path cached;
+
+    @Setup
+    public void setUp() throws IOException {
+        csv = SyntheticData.csv(rows, false);
+        loaded = parse();
+        cached = Files.createTempFile("bench-", ".chunk");
+        cached.toFile().deleteOnExit();
+        loaded.save(cached);
+    }
+
+    private CustomDataSetIterator parse() throws IOException {
+        return new CustomDataSetIterator(new ByteArrayInputStream(csv), false, CsvSchema.defaults(), batchSize);
+    }
+
+    @Benchmark
+    public CustomDataSetIterator parseCsv() throws IOException {
+        return parse();
+    }
+
+    @Benchmark
+    public CustomDataSetIterator loadCached() throws IOException {
+        return CustomDataSetIterator.load(cached, CsvSchema.defaults().getLabelNames(), batchSize);
+    }
+
+    @Benchmark
+    public void assembleMinibatches(Blackhole blackhole) {
+        loaded.reset();
+        while (loaded.hasNext()) {
+            blackhole.consume(loaded.next(batchSize));
+        }
+    }
+}
@@ -5,9 +5,14 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
 import software.amazon.awssdk.regions.Region;
 
+import java.net.URI;
+import java.time.Duration;
+
 @Configuration
 public class AwsConfig {
 
@@ -20,12 +25,30 @@ public class AwsConfig {
     @Value("${aws.region}")
     private String region;
 
+    @Value("${aws.s3.max-connections:32}")
+    private int maxConnections; // Planning threads read headers and boundary windows concurrently
+
+    @Value("${aws.s3.connection-max-idle-ms:60000}")
+    private long connectionMaxIdleMs;
+
+    @Value("${aws.s3.endpoint:}")
+    private String endpoint; // Blank uses AWS, otherwise an S3-compatible store such as a local stand-in
+
     @Bean
     public S3Client s3Client() {
-        return S3Client.builder()
+        S3ClientBuilder builder = S3Client.builder()
                 .region(Region.of(region))
                 .credentialsProvider(StaticCredentialsProvider.create(
                         AwsBasicCredentials.create(accessKeyId, secretAccessKey)))
-                .build();
+                // Planning issues many small ranged GETs, pooled keep-alive connections skip the TLS handshake
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionMaxIdleTime(Duration.ofMillis(connectionMaxIdleMs))
+                        .tcpKeepAlive(true)
+                        .useIdleConnectionReaper(true));
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint)).forcePathStyle(true);
+        }
+        return builder.build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.example.master_service.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.Map;
+
+@Configuration
+public class KafkaConfig {
+
+    @Value("${training.tasks.topic:training-tasks}")
+    private String tasksTopic;
+
+    @Value("${training.tasks.partitions:32}")
+    private int tasksPartitions; // Upper bound on workers that can train chunks of one job in parallel
+
+    @Value("${training.tasks.replicas:1}")
+    private int tasksReplicas;
+
+    @Value("${training.results.topic:training-results}")
+    private String resultsTopic;
+
+    @Value("${training.models.topic:training-models}")
+    private String modelsTopic;
+
+    @Value("${training.results.partitions:8}")
+    private int resultsPartitions; // Updates are keyed by trainingId, this bounds how many runs merge in parallel
+
+    @Value("${training.progress.topic:training-progress}")
+    private String progressTopic;
+
+    @Value("${training.kafka.binary.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${training.kafka.binary.linger-ms:10}")
+    private int lingerMs; // Lets a chunk fan-out fill whole batches instead of one request per task
+
+    @Value("${training.kafka.binary.batch-size:262144}")
+    private int batchSize;
+
+    @Value("${training.kafka.max-message-bytes:16777216}")
+    private int maxMessageBytes; // Merged models are float32 parameter payloads, well past the 1 MB default
+
+    /**
+     * Small JSON control messages (progress events), sent as soon as possible.
+     */
+    @Bean
+    public ProducerFactory<String, String> producerFactory(KafkaProperties properties) {
+        return new DefaultKafkaProducerFactory<>(properties.buildProducerProperties(null),
+                new StringSerializer(), new StringSerializer());
+    }
+
+    @Bean
+    public KafkaTemplate<String, String> kafkaTemplate(ProducerFactory<String, String> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    /**
+     * Binary tasks and merged models, see MessageCodec. Batched and compressed, since a run
+     * publishes every task at once and every model carries the full parameter payload.
+     */
+    @Bean
+    public ProducerFactory<String, byte[]> binaryProducerFactory(KafkaProperties properties) {
+        Map<String, Object> config = properties.buildProducerProperties(null);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        config.put(ProducerConfig.MAX_REQUEST_SIZE_CONFIG, maxMessageBytes);
+        return new DefaultKafkaProducerFactory<>(config, new StringSerializer(), new ByteArraySerializer());
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> binaryKafkaTemplate(ProducerFactory<String, byte[]> binaryProducerFactory) {
+        return new KafkaTemplate<>(binaryProducerFactory);
+    }
+
+    @Bean
+    public NewTopic trainingTasksTopic() {
+        return TopicBuilder.name(tasksTopic)
+                .partitions(tasksPartitions)
+                .replicas(tasksReplicas)
+                .build();
+    }
+
+    @Bean
+    public NewTopic trainingTasksDeadLetterTopic() {
+        // Workers publish here without a fixed partition, it needs no more than a few
+        return TopicBuilder.name(tasksTopic + ".DLT")
+                .partitions(resultsPartitions)
+                .replicas(tasksReplicas)
+                .build();
+    }
+
+    @Bean
+    public NewTopic trainingResultsTopic() {
+        return TopicBuilder.name(resultsTopic)
+                .partitions(resultsPartitions)
+                .replicas(tasksReplicas)
+                .config(TopicConfig.MAX_MESSAGE_BYTES_CONFIG, String.valueOf(maxMessageBytes))
+                .build();
+    }
+
+    @Bean
+    public NewTopic trainingModelsTopic() {
+        // Only the newest merged model of each run matters, older versions are compacted away
+        return TopicBuilder.name(modelsTopic)
+                .partitions(resultsPartitions)
+                .replicas(tasksReplicas)
+                .compact()
+                .config(TopicConfig.MAX_MESSAGE_BYTES_CONFIG, String.valueOf(maxMessageBytes))
+                .build();
+    }
+
+    @Bean
+    public NewTopic trainingProgressTopic() {
+        return TopicBuilder.name(progressTopic)
+                .partitions(resultsPartitions)
+                .replicas(tasksReplicas)
+                .build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.master_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableScheduling // Stalled-chunk reaper
+public class TrainingExecutorConfig {
+
+    @Value("${training.submit.threads:4}")
+    private int threads;
+
+    @Value("${training.submit.queue-capacity:100}")
+    private int queueCapacity; // Submissions beyond this are rejected with 429 instead of piling up
+
+    @Bean
+    public ThreadPoolTaskExecutor trainingPlanExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("training-plan-");
+        // Default AbortPolicy surfaces a full queue as TaskRejectedException
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
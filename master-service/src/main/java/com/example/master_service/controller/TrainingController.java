@@ -2,10 +2,18 @@ package com.example.master_service.controller;
 
 import com.example.master_service.model.TrainingRequest;
 import com.example.master_service.model.TrainingStatus;
+import com.example.master_service.service.ModelStore;
+import com.example.master_service.service.ProgressBroadcaster;
 import com.example.master_service.service.TrainingService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api")
@@ -14,11 +22,24 @@ public class TrainingController {
     @Autowired
     private TrainingService trainingService;
 
+    @Autowired
+    private ModelStore modelStore;
+
+    @Autowired
+    private ProgressBroadcaster progressBroadcaster;
+
     @PostMapping("/train")
     public ResponseEntity<String> startTraining(@RequestBody TrainingRequest request) {
         // Start training with the dataset URL (e.g., s3://aadi-dataset-bucket-2025/test.csv)
-        String trainingId = trainingService.startTraining(request.getDatasetUrl());
-        return ResponseEntity.ok(trainingId);
+        // Planning runs in the background, poll /api/status/{id} until it leaves PLANNING
+        try {
+            String trainingId = trainingService.startTraining(request.getDatasetUrl(), request.getModel());
+            return ResponseEntity.accepted().body(trainingId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid model spec: " + e.getMessage());
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body("Training queue is full, retry later");
+        }
     }
 
     @GetMapping("/status/{id}")
@@ -29,4 +50,36 @@ public class TrainingController {
         }
         return ResponseEntity.ok(status);
     }
-}
\ No newline at end of file
+
+    @GetMapping(path = "/status/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamStatus(@PathVariable("id") String trainingId) {
+        // One status read per subscriber, every later transition is pushed from the progress topic
+        TrainingStatus status = trainingService.getTrainingStatus(trainingId);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(progressBroadcaster.subscribe(trainingId, status,
+                () -> trainingService.getTrainingStatus(trainingId)));
+    }
+
+    @GetMapping("/model/{id}")
+    public ResponseEntity<Resource> getModel(@PathVariable("id") String trainingId) {
+        TrainingStatus status = trainingService.getTrainingStatus(trainingId);
+        if (status == null || status.getModelRef() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Resource blob = modelStore.open(status.getModelRef());
+        if (blob == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // Streamed as stored, clients inflate it and can verify the checksum
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(status.getModelSize())
+                .eTag("\"" + status.getModelChecksum() + "\"");
+        if (status.isModelCompressed()) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "deflate");
+        }
+        return response.body(blob);
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.master_service.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lifecycle of one chunk: PENDING when published, ASSIGNED while a worker trains it (kept alive
+ * by heartbeats), DONE once its parameters were sent, FAILED after it was dead-lettered.
+ */
+@Document(collection = "training_chunks")
+public class ChunkState {
+    @Id
+    private String id;          // trainingId + "-" + chunkIndex
+    private String trainingId;
+    private int chunkIndex;
+    private String state;       // "PENDING", "ASSIGNED", "DONE" or "FAILED"
+    private int attempts;       // Times a worker started training this chunk
+    private int republishes;    // Times the master re-dispatched it after a stall
+    private boolean speculated; // A duplicate attempt was launched because this chunk straggled
+    private String workerId;    // Worker process of the latest attempt, or of the one that finished it
+    private Instant publishedAt;
+    private Instant assignedAt;
+    private Instant heartbeatAt; // Latest heartbeat of any running attempt
+    private List<Attempt> running = new ArrayList<>(); // Attempts training it right now, a duplicate runs beside the original
+    private Instant finishedAt;
+    private String error;       // Latest failure
+    private ChunkDescriptor descriptor; // Re-published as is when the chunk stalls
+
+    public ChunkState() {}
+
+    public ChunkState(ChunkDescriptor descriptor) {
+        this.id = idOf(descriptor.getTrainingId(), descriptor.getChunkIndex());
+        this.trainingId = descriptor.getTrainingId();
+        this.chunkIndex = descriptor.getChunkIndex();
+        this.state = "PENDING";
+        this.publishedAt = Instant.now();
+        this.descriptor = descriptor;
+    }
+
+    public static String idOf(String trainingId, int chunkIndex) {
+        return trainingId + "-" + chunkIndex;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTrainingId() {
+        return trainingId;
+    }
+
+    public void setTrainingId(String trainingId) {
+        this.trainingId = trainingId;
+    }
+
+    public int getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public void setChunkIndex(int chunkIndex) {
+        this.chunkIndex = chunkIndex;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public int getRepublishes() {
+        return republishes;
+    }
+
+    public void setRepublishes(int republishes) {
+        this.republishes = republishes;
+    }
+
+    public boolean isSpeculated() {
+        return speculated;
+    }
+
+    public void setSpeculated(boolean speculated) {
+        this.speculated = speculated;
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public void setWorkerId(String workerId) {
+        this.workerId = workerId;
+    }
+
+    public Instant getPublishedAt() {
+        return publishedAt;
+    }
+
+    public void setPublishedAt(Instant publishedAt) {
+        this.publishedAt = publishedAt;
+    }
+
+    public Instant getAssignedAt() {
+        return assignedAt;
+    }
+
+    public void setAssignedAt(Instant assignedAt) {
+        this.assignedAt = assignedAt;
+    }
+
+    public Instant getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(Instant heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Instant finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public List<Attempt> getRunning() {
+        return running;
+    }
+
+    public void setRunning(List<Attempt> running) {
+        this.running = running;
+    }
+
+    public ChunkDescriptor getDescriptor() {
+        return descriptor;
+    }
+
+    public void setDescriptor(ChunkDescriptor descriptor) {
+        this.descriptor = descriptor;
+    }
+
+    /**
+     * One worker's attempt at the chunk, heartbeating and failing on its own.
+     */
+    public static class Attempt {
+        private String attemptId;
+        private String workerId;
+        private Instant assignedAt;
+        private Instant heartbeatAt;
+
+        public Attempt() {}
+
+        public Attempt(String attemptId, String workerId, Instant assignedAt) {
+            this.attemptId = attemptId;
+            this.workerId = workerId;
+            this.assignedAt = assignedAt;
+            this.heartbeatAt = assignedAt;
+        }
+
+        public String getAttemptId() {
+            return attemptId;
+        }
+
+        public void setAttemptId(String attemptId) {
+            this.attemptId = attemptId;
+        }
+
+        public String getWorkerId() {
+            return workerId;
+        }
+
+        public void setWorkerId(String workerId) {
+            this.workerId = workerId;
+        }
+
+        public Instant getAssignedAt() {
+            return assignedAt;
+        }
+
+        public void setAssignedAt(Instant assignedAt) {
+            this.assignedAt = assignedAt;
+        }
+
+        public Instant getHeartbeatAt() {
+            return heartbeatAt;
+        }
+
+        public void setHeartbeatAt(Instant heartbeatAt) {
+            this.heartbeatAt = heartbeatAt;
+        }
+    }
+}
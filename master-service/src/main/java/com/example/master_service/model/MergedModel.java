@@ -0,0 +1,65 @@
+package com.example.master_service.model;
+
+import java.util.Map;
+
+/**
+ * Sample-weighted average of every chunk update merged so far, broadcast back to the workers.
+ */
+public class MergedModel {
+    private String trainingId;
+    private int version; // Number of chunk updates merged into these parameters
+    private int totalChunks;
+    private long sampleCount;
+    private Map<String, float[]> params;
+
+    public MergedModel() {
+    }
+
+    public MergedModel(String trainingId, int version, int totalChunks, long sampleCount, Map<String, float[]> params) {
+        this.trainingId = trainingId;
+        this.version = version;
+        this.totalChunks = totalChunks;
+        this.sampleCount = sampleCount;
+        this.params = params;
+    }
+
+    public String getTrainingId() {
+        return trainingId;
+    }
+
+    public void setTrainingId(String trainingId) {
+        this.trainingId = trainingId;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public void setTotalChunks(int totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(long sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public Map<String, float[]> getParams() {
+        return params;
+    }
+
+    public void setParams(Map<String, float[]> params) {
+        this.params = params;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.master_service.model;
 
 public class TrainingRequest {
     private String datasetUrl;
+    private ModelSpec model; // Optional, defaults to the original fixed network
 
     // Default constructor for Jackson (JSON deserialization)
     public TrainingRequest() {}
@@ -17,4 +18,12 @@ public class TrainingRequest {
     public void setDatasetUrl(String datasetUrl) {
         this.datasetUrl = datasetUrl;
     }
+
+    public ModelSpec getModel() {
+        return model;
+    }
+
+    public void setModel(ModelSpec model) {
+        this.model = model;
+    }
 }
\ No newline at end of file
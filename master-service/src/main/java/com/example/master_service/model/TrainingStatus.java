@@ -7,8 +7,16 @@ import org.springframework.data.mongodb.core.mapping.Document;
 public class TrainingStatus {
     @Id
     private String id;          // trainingId
-    private String status;      // e.g., "RUNNING", "COMPLETED"
+    private String status;      // "PLANNING", "RUNNING", "MERGING", "COMPLETED" or "FAILED"
     private int progress;       // Percentage (0-100)
+    private int totalChunks;    // Number of chunks planned for this run
+    private int completedChunks;
+    private String error;       // Reason for a FAILED status
+    private String modelRef;    // GridFS id of the merged model blob, set on completion
+    private String modelChecksum; // SHA-256 of the stored blob
+    private long modelSize;     // Stored blob size in bytes
+    private boolean modelCompressed;
+    private String updateEncoding; // Update encoding the request asked for, null leaves it to the workers
 
     // Default constructor for MongoDB
     public TrainingStatus() {}
@@ -43,4 +51,68 @@ public class TrainingStatus {
     public void setProgress(int progress) {
         this.progress = progress;
     }
-}
\ No newline at end of file
+
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public void setTotalChunks(int totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+
+    public int getCompletedChunks() {
+        return completedChunks;
+    }
+
+    public void setCompletedChunks(int completedChunks) {
+        this.completedChunks = completedChunks;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getModelRef() {
+        return modelRef;
+    }
+
+    public void setModelRef(String modelRef) {
+        this.modelRef = modelRef;
+    }
+
+    public String getModelChecksum() {
+        return modelChecksum;
+    }
+
+    public void setModelChecksum(String modelChecksum) {
+        this.modelChecksum = modelChecksum;
+    }
+
+    public long getModelSize() {
+        return modelSize;
+    }
+
+    public void setModelSize(long modelSize) {
+        this.modelSize = modelSize;
+    }
+
+    public boolean isModelCompressed() {
+        return modelCompressed;
+    }
+
+    public void setModelCompressed(boolean modelCompressed) {
+        this.modelCompressed = modelCompressed;
+    }
+
+    public String getUpdateEncoding() {
+        return updateEncoding;
+    }
+
+    public void setUpdateEncoding(String updateEncoding) {
+        this.updateEncoding = updateEncoding;
+    }
+}
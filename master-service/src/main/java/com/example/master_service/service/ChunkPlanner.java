@@ -0,0 +1,191 @@
+package com.example.master_service.service;
+
+import com.example.master_service.model.ChunkDescriptor;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits a dataset into newline-aligned byte ranges, sizing the number of chunks from
+ * the dataset size and the number of workers that can consume them in parallel.
+ */
+@Component
+public class ChunkPlanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkPlanner.class);
+    private static final int PROBE_SIZE = 4 * 1024; // First ranged read when looking for a row boundary
+    private static final int MAX_PROBE_SIZE = 1024 * 1024;
+    private static final long ADMIN_TIMEOUT_MS = 5000;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Autowired
+    private KafkaAdmin kafkaAdmin;
+
+    @Value("${training.tasks.topic:training-tasks}")
+    private String tasksTopic;
+
+    @Value("${training.workers.group-id:workers}")
+    private String workersGroupId;
+
+    @Value("${training.chunk.target-bytes:67108864}")
+    private long targetChunkBytes; // 64 MB per chunk unless parallelism asks for more chunks
+
+    @Value("${training.chunk.min-bytes:1048576}")
+    private long minChunkBytes; // Never split below 1 MB just to keep idle workers busy
+
+    @Value("${training.chunk.max-chunks:1024}")
+    private int maxChunks;
+
+    private AdminClient adminClient;
+
+    public List<ChunkDescriptor> plan(String trainingId, String bucket, String key) {
+        return plan(trainingId, bucket, key, new ProbeStats());
+    }
+
+    /**
+     * Plans the chunks and adds the time and bytes spent reading S3 to {@code probes}.
+     */
+    List<ChunkDescriptor> plan(String trainingId, String bucket, String key, ProbeStats probes) {
+        long headStart = System.nanoTime();
+        HeadObjectResponse head = s3Client.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+        probes.nanos += System.nanoTime() - headStart;
+        long size = head.contentLength();
+        long dataStart = findRowBoundary(bucket, key, 0, size, probes);
+        String header = dataStart > 0
+                ? new String(readRange(bucket, key, 0, dataStart - 1, probes), StandardCharsets.UTF_8).strip()
+                : "";
+
+        int parallelism = workerParallelism();
+        int numChunks = chunkCount(size - dataStart, parallelism);
+        logger.info("Planning {} chunks over s3://{}/{} ({} bytes, parallelism {})", numChunks, bucket, key, size, parallelism);
+
+        List<long[]> ranges = new ArrayList<>();
+        long start = dataStart;
+        for (int i = 1; i <= numChunks && start < size; i++) {
+            long end = size;
+            if (i < numChunks) {
+                long target = dataStart + (size - dataStart) * i / numChunks;
+                // Starting one byte early keeps a boundary that already sits on a newline
+                end = findRowBoundary(bucket, key, Math.max(start, target - 1), size, probes);
+            }
+            if (end > start) {
+                ranges.add(new long[]{start, end});
+                start = end;
+            }
+        }
+        if (ranges.isEmpty()) {
+            throw new IllegalStateException("Dataset has no rows after the header");
+        }
+
+        // Rows may be long enough that some targets collapse, so the total is only known now
+        List<ChunkDescriptor> chunks = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            ChunkDescriptor chunk = new ChunkDescriptor(trainingId, bucket, key, ranges.get(i)[0], ranges.get(i)[1],
+                    header, i, ranges.size());
+            chunk.setEtag(head.eTag()); // Lets workers cache the parsed chunk and detect a replaced object
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * At least one chunk per parallel consumer and at least one chunk per target size, rounded
+     * up to a multiple of the parallelism so every worker gets the same number of rounds.
+     */
+    int chunkCount(long dataBytes, int parallelism) {
+        long bySize = Math.max(1, (dataBytes + targetChunkBytes - 1) / targetChunkBytes);
+        long rounds = (bySize + parallelism - 1) / parallelism;
+        long chunks = rounds * parallelism;
+        long bySmallest = Math.max(1, dataBytes / minChunkBytes);
+        return (int) Math.max(1, Math.min(Math.min(chunks, bySmallest), maxChunks));
+    }
+
+    /**
+     * Number of chunks the worker group can train at the same time: live members of the
+     * consumer group, capped by the partition count of the tasks topic.
+     */
+    private int workerParallelism() {
+        try {
+            AdminClient admin = adminClient();
+            TopicDescription topic = admin.describeTopics(List.of(tasksTopic)).allTopicNames()
+                    .get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS).get(tasksTopic);
+            int partitions = topic.partitions().size();
+            ConsumerGroupDescription group = admin.describeConsumerGroups(List.of(workersGroupId)).all()
+                    .get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS).get(workersGroupId);
+            int consumers = group.members().size();
+            return Math.max(1, consumers > 0 ? Math.min(consumers, partitions) : partitions);
+        } catch (Exception e) {
+            logger.warn("Could not read worker parallelism from Kafka, falling back to 1: {}", e.getMessage());
+            return 1;
+        }
+    }
+
+    private synchronized AdminClient adminClient() {
+        if (adminClient == null) {
+            adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+        }
+        return adminClient;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (adminClient != null) {
+            adminClient.close();
+        }
+    }
+
+    // Returns the offset just past the first newline at or after `from`, or `size` if there is none
+    private long findRowBoundary(String bucket, String key, long from, long size, ProbeStats probes) {
+        long position = from;
+        int probe = PROBE_SIZE;
+        while (position < size) {
+            byte[] bytes = readRange(bucket, key, position, Math.min(size, position + probe) - 1, probes);
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += bytes.length;
+            probe = Math.min(probe * 2, MAX_PROBE_SIZE);
+        }
+        return size;
+    }
+
+    private byte[] readRange(String bucket, String key, long first, long last, ProbeStats probes) {
+        long start = System.nanoTime();
+        byte[] bytes = s3Client.getObjectAsBytes(GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .range("bytes=" + first + "-" + last)
+                .build()).asByteArray();
+        probes.nanos += System.nanoTime() - start;
+        probes.bytes += bytes.length;
+        return bytes;
+    }
+
+    /**
+     * S3 time and bytes of one plan, which runs on a single thread.
+     */
+    static class ProbeStats {
+        long nanos;
+        long bytes;
+    }
+}
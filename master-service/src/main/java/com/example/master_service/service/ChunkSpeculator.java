@@ -0,0 +1,158 @@
+package com.example.master_service.service;
+
+import com.example.master_service.model.ChunkDescriptor;
+import com.example.master_service.model.ChunkState;
+import com.example.master_service.model.MessageCodec;
+import org.apache.kafka.common.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Launches a second attempt of chunks that run far longer than their run's finished chunks, so
+ * one slow worker does not set the latency of the whole job. Whichever attempt finishes first
+ * wins; the other one's parameters and progress are dropped by the parameter server's merged
+ * chunk set and the status document's doneChunks set.
+ */
+@Service
+public class ChunkSpeculator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkSpeculator.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Value("${training.tasks.topic:training-tasks}")
+    private String tasksTopic;
+
+    @Value("${training.speculation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${training.speculation.factor:2.0}")
+    private double factor; // Straggler once running this many times the median finished duration
+
+    @Value("${training.speculation.min-done:3}")
+    private int minDone; // Finished chunks needed before the median means anything
+
+    @Value("${training.speculation.min-runtime-ms:30000}")
+    private long minRuntimeMs; // Short chunks are not worth a second attempt
+
+    @Scheduled(fixedDelayString = "${training.speculation.interval-ms:10000}")
+    public void speculate() {
+        if (!enabled) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<ChunkState> running = mongoTemplate.find(new Query(Criteria.where("state").is("ASSIGNED")
+                .and("speculated").ne(true)
+                .and("assignedAt").lt(now.minusMillis(minRuntimeMs))), ChunkState.class);
+        Map<String, List<ChunkState>> byRun = running.stream().collect(Collectors.groupingBy(ChunkState::getTrainingId));
+        for (Map.Entry<String, List<ChunkState>> run : byRun.entrySet()) {
+            long median = medianDoneMillis(run.getKey());
+            if (median < 0) {
+                continue;
+            }
+            for (ChunkState chunk : run.getValue()) {
+                long runtime = Duration.between(chunk.getAssignedAt(), now).toMillis();
+                if (isStraggler(runtime, median, factor)) {
+                    launchDuplicate(chunk, runtime, median);
+                }
+            }
+        }
+    }
+
+    /**
+     * Median duration of the run's finished chunks, or -1 if too few have finished.
+     */
+    private long medianDoneMillis(String trainingId) {
+        Query done = new Query(Criteria.where("trainingId").is(trainingId).and("state").is("DONE"));
+        done.fields().include("assignedAt", "finishedAt");
+        long[] durations = mongoTemplate.find(done, ChunkState.class).stream()
+                .filter(chunk -> chunk.getAssignedAt() != null && chunk.getFinishedAt() != null)
+                .mapToLong(chunk -> Duration.between(chunk.getAssignedAt(), chunk.getFinishedAt()).toMillis())
+                .toArray();
+        return durations.length < minDone ? -1 : median(durations);
+    }
+
+    static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int mid = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+    }
+
+    static boolean isStraggler(long runtimeMillis, long medianMillis, double factor) {
+        return runtimeMillis > factor * Math.max(1, medianMillis);
+    }
+
+    private void launchDuplicate(ChunkState chunk, long runtime, long median) {
+        // Flag first, so each chunk is speculated at most once and only by one master
+        boolean flagged = mongoTemplate.updateFirst(
+                new Query(Criteria.where("id").is(chunk.getId()).and("state").is("ASSIGNED").and("speculated").ne(true)),
+                new Update().set("speculated", true), ChunkState.class).getModifiedCount() > 0;
+        if (!flagged) {
+            return;
+        }
+        ChunkDescriptor descriptor = chunk.getDescriptor();
+        String key = descriptor.getTrainingId() + "-" + descriptor.getChunkIndex();
+        int partition;
+        CompletableFuture<?> sent;
+        try {
+            partition = otherPartition(key, kafkaTemplate.partitionsFor(tasksTopic).size());
+            // The straggling consumer owns the key's partition and is busy with this chunk, send it elsewhere
+            sent = kafkaTemplate.send(tasksTopic, partition, key, MessageCodec.encodeTask(descriptor));
+        } catch (RuntimeException e) {
+            unflag(chunk, e);
+            return;
+        }
+        sent.whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                unflag(chunk, error);
+            }
+        });
+        logger.info("Chunk {} of trainingId: {} has run {} ms against a median of {} ms, launched a duplicate on partition {}",
+                chunk.getChunkIndex(), chunk.getTrainingId(), runtime, median, partition);
+    }
+
+    /**
+     * Clears the flag of a duplicate that never reached Kafka, so a later round can launch it.
+     */
+    private void unflag(ChunkState chunk, Throwable error) {
+        logger.warn("Failed to launch a duplicate of chunk {} of trainingId: {}: {}", chunk.getChunkIndex(),
+                chunk.getTrainingId(), error.getMessage());
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(chunk.getId())), new Update().unset("speculated"),
+                ChunkState.class);
+    }
+
+    /**
+     * A partition other than the one the default partitioner picks for the key.
+     */
+    static int otherPartition(String key, int partitions) {
+        if (partitions <= 1) {
+            return 0;
+        }
+        int home = Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % partitions;
+        return (home + 1 + ThreadLocalRandom.current().nextInt(partitions - 1)) % partitions;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.master_service.service;
+
+import com.example.master_service.model.ChunkDescriptor;
+import com.example.master_service.model.ChunkState;
+import com.example.master_service.model.MessageCodec;
+import com.example.master_service.model.ProgressEvent;
+import com.example.master_service.model.TrainingStatus;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Keeps chunks moving when workers fail. Chunks whose worker stopped heartbeating are put back
+ * on training-tasks; chunks that exhausted their retries arrive on the dead-letter topic and
+ * fail their run, unless another attempt at them is still heartbeating, so no job sits at
+ * RUNNING forever.
+ */
+@Service
+public class ChunkSupervisor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkSupervisor.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Autowired
+    private ProgressBroadcaster progressBroadcaster;
+
+    @Autowired
+    private ParameterServer parameterServer;
+
+    @Value("${training.tasks.topic:training-tasks}")
+    private String tasksTopic;
+
+    @Value("${training.reaper.stall-timeout-ms:60000}")
+    private long stallTimeoutMs; // Several missed worker heartbeats
+
+    @Value("${training.reaper.max-republishes:3}")
+    private int maxRepublishes;
+
+    @Value("${training.reaper.batch-size:500}")
+    private int batchSize;
+
+    private volatile boolean indexed;
+
+    /**
+     * Records every planned chunk as PENDING, before any of them is published.
+     */
+    public void track(List<ChunkDescriptor> chunks) {
+        mongoTemplate.insert(chunks.stream().map(ChunkState::new).toList(), ChunkState.class);
+    }
+
+    @Scheduled(fixedDelayString = "${training.reaper.interval-ms:30000}")
+    public void reapStalledChunks() {
+        ensureIndexes();
+        Instant cutoff = Instant.now().minusMillis(stallTimeoutMs);
+        Query stalledQuery = new Query(Criteria.where("state").is("ASSIGNED").and("heartbeatAt").lt(cutoff))
+                .with(Sort.by("heartbeatAt"))
+                .limit(batchSize);
+        for (ChunkState stalled : mongoTemplate.find(stalledQuery, ChunkState.class)) {
+            if (stalled.getRepublishes() >= maxRepublishes) {
+                failChunk(stalled.getTrainingId(), stalled.getChunkIndex(),
+                        "Chunk " + stalled.getChunkIndex() + " stalled " + (stalled.getRepublishes() + 1) + " times");
+                continue;
+            }
+            logger.warn("Chunk {} of trainingId: {} has no heartbeat from {} since {}, re-dispatching",
+                    stalled.getChunkIndex(), stalled.getTrainingId(), stalled.getWorkerId(), stalled.getHeartbeatAt());
+            republish(stalled, Criteria.where("heartbeatAt").is(stalled.getHeartbeatAt()));
+        }
+    }
+
+    /**
+     * Puts a chunk back on training-tasks, unless its state moved on since it was read.
+     *
+     * @param unchanged extra condition proving nobody else touched the chunk, so only one master re-dispatches it
+     * @return true if the chunk was published again
+     */
+    boolean republish(ChunkState chunk, Criteria unchanged) {
+        ChunkState won = mongoTemplate.findAndModify(
+                new Query(Criteria.where("id").is(chunk.getId()).and("state").is("ASSIGNED")).addCriteria(unchanged),
+                // Every attempt went quiet, the next claim starts the list over
+                new Update().set("state", "PENDING").set("publishedAt", Instant.now()).inc("republishes", 1).unset("running"),
+                FindAndModifyOptions.options().returnNew(true),
+                ChunkState.class);
+        if (won == null) {
+            return false;
+        }
+        ChunkDescriptor descriptor = won.getDescriptor();
+        publishOrReassign(mongoTemplate, won, () -> kafkaTemplate.send(tasksTopic,
+                descriptor.getTrainingId() + "-" + descriptor.getChunkIndex(), MessageCodec.encodeTask(descriptor)));
+        return true;
+    }
+
+    /**
+     * Sends a chunk that was just set back to PENDING, and returns it to ASSIGNED if the send
+     * fails. Nothing watches PENDING chunks, while an ASSIGNED one is re-dispatched again once
+     * its heartbeat is stale, or fails its run after too many republishes.
+     */
+    static void publishOrReassign(MongoTemplate mongoTemplate, ChunkState published, Supplier<CompletableFuture<?>> send) {
+        CompletableFuture<?> sent;
+        try {
+            sent = send.get();
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e); // Metadata or serialization failures throw right away
+        }
+        sent.whenCompleteAsync((result, error) -> {
+            if (error == null) {
+                return;
+            }
+            logger.warn("Failed to re-dispatch chunk {} of trainingId: {}, leaving it to the reaper: {}",
+                    published.getChunkIndex(), published.getTrainingId(), error.getMessage());
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(published.getId()).and("state").is("PENDING")
+                            .and("publishedAt").is(published.getPublishedAt())),
+                    new Update().set("state", "ASSIGNED"), ChunkState.class);
+        });
+    }
+
+    @KafkaListener(topics = "${training.tasks.topic:training-tasks}.DLT", groupId = "${training.dlt.group-id:master-dlt}",
+            properties = "value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer")
+    public void onDeadLetter(ConsumerRecord<String, byte[]> record) {
+        ChunkDescriptor chunk;
+        try {
+            chunk = MessageCodec.decodeTask(record.value());
+        } catch (IOException e) {
+            logger.error("Discarding unreadable dead-lettered task with key: {}", record.key(), e);
+            return;
+        }
+        Header reason = record.headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_MESSAGE);
+        String error = "Chunk " + chunk.getChunkIndex() + " failed after retries"
+                + (reason != null ? ": " + new String(reason.value(), StandardCharsets.UTF_8) : "");
+        String id = ChunkState.idOf(chunk.getTrainingId(), chunk.getChunkIndex());
+        // A speculative duplicate can run out of retries while the original attempt still trains, or after it finished
+        Instant cutoff = Instant.now().minusMillis(stallTimeoutMs);
+        ChunkState failed = mongoTemplate.findAndModify(
+                new Query(Criteria.where("id").is(id).and("state").ne("DONE")
+                        .and("running").not().elemMatch(Criteria.where("heartbeatAt").gte(cutoff))),
+                new Update().set("state", "FAILED").set("error", error).set("finishedAt", Instant.now()),
+                ChunkState.class);
+        if (failed == null && mongoTemplate.exists(new Query(Criteria.where("id").is(id)), ChunkState.class)) {
+            logger.warn("An attempt at chunk {} of trainingId: {} was dead-lettered, another attempt is still live or done: {}",
+                    chunk.getChunkIndex(), chunk.getTrainingId(), error);
+            return;
+        }
+        logger.error("Failing trainingId: {}: {}", chunk.getTrainingId(), error);
+        failRun(chunk.getTrainingId(), error, chunk.getChunkIndex());
+    }
+
+    private void failChunk(String trainingId, int chunkIndex, String error) {
+        logger.error("Failing trainingId: {}: {}", trainingId, error);
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(ChunkState.idOf(trainingId, chunkIndex))),
+                new Update().set("state", "FAILED").set("error", error).set("finishedAt", Instant.now()),
+                ChunkState.class);
+        // The merged model would be missing this chunk's data, so the whole run fails
+        failRun(trainingId, error, chunkIndex);
+    }
+
+    /**
+     * Fails a run that has not finished yet and drops whatever was merged of it so far.
+     */
+    public void failRun(String trainingId, String error) {
+        logger.error("Failing trainingId: {}: {}", trainingId, error);
+        failRun(trainingId, error, -1);
+    }
+
+    private void failRun(String trainingId, String error, int chunkIndex) {
+        TrainingStatus failed = mongoTemplate.findAndModify(
+                new Query(Criteria.where("id").is(trainingId).and("status").nin("COMPLETED", "FAILED")),
+                new Update().set("status", "FAILED").set("error", error),
+                FindAndModifyOptions.options().returnNew(true),
+                TrainingStatus.class);
+        if (failed != null) {
+            parameterServer.discard(trainingId);
+            progressBroadcaster.publish(new ProgressEvent(trainingId, "FAILED", failed.getProgress(),
+                    failed.getTotalChunks(), failed.getCompletedChunks(), chunkIndex));
+        }
+    }
+
+    private void ensureIndexes() {
+        if (!indexed) {
+            mongoTemplate.indexOps(ChunkState.class).ensureIndex(new Index().on("state", Sort.Direction.ASC)
+                    .on("heartbeatAt", Sort.Direction.ASC));
+            mongoTemplate.indexOps(ChunkState.class).ensureIndex(new Index().on("trainingId", Sort.Direction.ASC)
+                    .on("state", Sort.Direction.ASC));
+            indexed = true;
+        }
+    }
+}
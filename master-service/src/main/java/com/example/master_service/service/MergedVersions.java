@@ -0,0 +1,66 @@
+package com.example.master_service.service;
+
+import com.example.master_service.model.MergedModel;
+import com.example.master_service.model.ParameterUpdate;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recently broadcast merged models of one training run, the bases TOPK and THRESHOLD updates
+ * are deltas against. Workers start a chunk from the newest broadcast model, so the latest few
+ * versions cover the chunks still training; a delta against an older one cannot be rebuilt.
+ */
+class MergedVersions {
+
+    private final int retained;
+    private final Map<Integer, Map<String, float[]>> versions = new LinkedHashMap<>(); // Oldest first
+
+    MergedVersions(int retained) {
+        this.retained = retained;
+    }
+
+    /**
+     * Keeps the model's parameters as they were broadcast, they are never changed afterwards.
+     */
+    synchronized void add(MergedModel model) {
+        versions.put(model.getVersion(), model.getParams());
+        Iterator<Integer> oldest = versions.keySet().iterator();
+        while (versions.size() > retained) {
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    /**
+     * @return the complete parameters of a delta update, or null if its base version is not kept
+     * @throws IllegalArgumentException if the delta does not match the layout of its base
+     */
+    synchronized Map<String, float[]> resolve(ParameterUpdate update) {
+        Map<String, float[]> base = versions.get(update.getBaseVersion());
+        if (base == null) {
+            return null;
+        }
+        Map<String, float[]> delta = update.getParams();
+        if (delta.size() != base.size()) {
+            throw new IllegalArgumentException("Delta of chunk " + update.getChunkIndex() + " does not match merged version "
+                    + update.getBaseVersion());
+        }
+        Map<String, float[]> params = new LinkedHashMap<>();
+        for (Map.Entry<String, float[]> entry : base.entrySet()) {
+            float[] change = delta.get(entry.getKey());
+            float[] start = entry.getValue();
+            if (change == null || change.length != start.length) {
+                throw new IllegalArgumentException("Delta for " + entry.getKey() + " does not match merged version "
+                        + update.getBaseVersion());
+            }
+            float[] values = new float[start.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = start[i] + change[i]; // The same float addition the worker measured its drift with
+            }
+            params.put(entry.getKey(), values);
+        }
+        return params;
+    }
+}
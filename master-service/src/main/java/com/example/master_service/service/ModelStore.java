@@ -0,0 +1,160 @@
+package com.example.master_service.service;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Stores merged models as binary blobs in GridFS, so the status document only carries a
+ * reference. The blob is little-endian float32: a format version and parameter count, then per
+ * parameter its UTF-8 name, element count and values. With compression on, the whole blob is
+ * zlib deflated, which is also what HTTP means by "Content-Encoding: deflate".
+ */
+@Component
+public class ModelStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelStore.class);
+    private static final int FORMAT_VERSION = 1;
+
+    @Autowired
+    private GridFsTemplate gridFsTemplate;
+
+    @Value("${training.model.compress:true}")
+    private boolean compress;
+
+    /**
+     * A stored model: the GridFS id, SHA-256 of the stored bytes and their size.
+     */
+    public static class StoredModel {
+        private final String ref;
+        private final String checksum;
+        private final long size;
+        private final boolean compressed;
+
+        StoredModel(String ref, String checksum, long size, boolean compressed) {
+            this.ref = ref;
+            this.checksum = checksum;
+            this.size = size;
+            this.compressed = compressed;
+        }
+
+        public String getRef() {
+            return ref;
+        }
+
+        public String getChecksum() {
+            return checksum;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public boolean isCompressed() {
+            return compressed;
+        }
+    }
+
+    public StoredModel save(String trainingId, Map<String, float[]> params) {
+        byte[] blob = encode(params, compress);
+        Document metadata = new Document("trainingId", trainingId)
+                .append("format", FORMAT_VERSION)
+                .append("compressed", compress);
+        ObjectId id = gridFsTemplate.store(new ByteArrayInputStream(blob), "model-" + trainingId + ".bin",
+                "application/octet-stream", metadata);
+        logger.info("Stored model for trainingId: {} in GridFS ({} bytes)", trainingId, blob.length);
+        return new StoredModel(id.toHexString(), checksum(blob), blob.length, compress);
+    }
+
+    /**
+     * Opens a stored blob as is, still compressed if it was saved that way.
+     *
+     * @return null if no blob exists for the reference
+     */
+    public GridFsResource open(String ref) {
+        GridFSFile file = gridFsTemplate.findOne(new Query(Criteria.where("_id").is(new ObjectId(ref))));
+        return file == null ? null : gridFsTemplate.getResource(file);
+    }
+
+    static byte[] encode(Map<String, float[]> params, boolean compress) {
+        int size = 8;
+        for (Map.Entry<String, float[]> entry : params.entrySet()) {
+            size += 4 + entry.getKey().getBytes(StandardCharsets.UTF_8).length + 4 + entry.getValue().length * 4;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(FORMAT_VERSION).putInt(params.size());
+        for (Map.Entry<String, float[]> entry : params.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(name.length).put(name);
+            buffer.putInt(entry.getValue().length);
+            buffer.asFloatBuffer().put(entry.getValue()); // Bulk copy, the float view shares the byte order
+            buffer.position(buffer.position() + entry.getValue().length * 4);
+        }
+        if (!compress) {
+            return buffer.array();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size / 2);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+            deflater.write(buffer.array());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compress model", e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads a blob as served by the model download. The master never reads models back, this is
+     * the reference for clients and keeps the format honest in tests.
+     */
+    static Map<String, float[]> decode(InputStream blob, boolean compressed) throws IOException {
+        byte[] bytes = (compressed ? new InflaterInputStream(blob) : blob).readAllBytes();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int version = buffer.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported model format version " + version);
+        }
+        int count = buffer.getInt();
+        Map<String, float[]> params = new LinkedHashMap<>();
+        for (int p = 0; p < count; p++) {
+            byte[] name = new byte[buffer.getInt()];
+            buffer.get(name);
+            float[] values = new float[buffer.getInt()];
+            buffer.asFloatBuffer().get(values);
+            buffer.position(buffer.position() + values.length * 4);
+            params.put(new String(name, StandardCharsets.UTF_8), values);
+        }
+        return params;
+    }
+
+    static String checksum(byte[] blob) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(blob));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.master_service.service;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Running sample-weighted sums of the parameters of one training run. Each chunk update is
+ * folded into the sums as it arrives and then dropped, so memory stays at one double per
+ * parameter no matter how many workers report.
+ */
+class ParameterAggregate {
+
+    private final int totalChunks;
+    private final Map<String, double[]> sums = new LinkedHashMap<>();
+    private final BitSet mergedChunks = new BitSet(); // Redelivered or retried chunks are only counted once
+    private long sampleCount;
+
+    ParameterAggregate(int totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+
+    /**
+     * Adds one chunk's parameters weighted by the number of examples it trained on.
+     *
+     * @return false if this chunk was already merged
+     * @throws IllegalArgumentException if the parameters do not match the layout merged so far
+     */
+    synchronized boolean add(int chunkIndex, long samples, Map<String, float[]> params) {
+        if (mergedChunks.get(chunkIndex)) {
+            return false;
+        }
+        if (sums.isEmpty()) {
+            for (Map.Entry<String, float[]> entry : params.entrySet()) {
+                sums.put(entry.getKey(), new double[entry.getValue().length]);
+            }
+        } else if (!sameLayout(params)) {
+            throw new IllegalArgumentException("Parameter layout of chunk " + chunkIndex + " does not match the merged model");
+        }
+        for (Map.Entry<String, float[]> entry : params.entrySet()) {
+            double[] sum = sums.get(entry.getKey());
+            float[] values = entry.getValue();
+            for (int i = 0; i < values.length; i++) {
+                sum[i] += samples * (double) values[i];
+            }
+        }
+        sampleCount += samples;
+        mergedChunks.set(chunkIndex);
+        return true;
+    }
+
+    private boolean sameLayout(Map<String, float[]> params) {
+        if (params.size() != sums.size()) {
+            return false;
+        }
+        for (Map.Entry<String, float[]> entry : params.entrySet()) {
+            double[] sum = sums.get(entry.getKey());
+            if (sum == null || sum.length != entry.getValue().length) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Current weighted average of every merged chunk.
+     */
+    synchronized Map<String, float[]> average() {
+        Map<String, float[]> average = new LinkedHashMap<>();
+        double scale = sampleCount == 0 ? 0.0 : 1.0 / sampleCount; // Chunks without valid rows carry no weight
+        for (Map.Entry<String, double[]> entry : sums.entrySet()) {
+            double[] sum = entry.getValue();
+            float[] values = new float[sum.length];
+            for (int i = 0; i < sum.length; i++) {
+                values[i] = (float) (sum[i] * scale);
+            }
+            average.put(entry.getKey(), values);
+        }
+        return average;
+    }
+
+    synchronized boolean contains(int chunkIndex) {
+        return mergedChunks.get(chunkIndex);
+    }
+
+    synchronized int mergedChunks() {
+        return mergedChunks.cardinality();
+    }
+
+    synchronized long sampleCount() {
+        return sampleCount;
+    }
+
+    int totalChunks() {
+        return totalChunks;
+    }
+
+    synchronized boolean isComplete() {
+        return mergedChunks.cardinality() >= totalChunks;
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.master_service.service;
+
+import com.example.master_service.model.ChunkDescriptor;
+import com.example.master_service.model.ChunkState;
+import com.example.master_service.model.MergedModel;
+import com.example.master_service.model.MessageCodec;
+import com.example.master_service.model.ParameterUpdate;
+import com.example.master_service.model.ProgressEvent;
+import com.example.master_service.model.TrainingStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Merges the parameters workers train on each chunk into one model, averaged by the number of
+ * examples behind each update. Updates are keyed by trainingId, so every update of a run lands
+ * on the same partition and is merged by a single master instance.
+ */
+@Service
+public class ParameterServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParameterServer.class);
+    private static final int COMPLETED_RUNS_REMEMBERED = 1024;
+    private static final Set<String> DELTA_ENCODINGS = Set.of("TOPK", "THRESHOLD"); // Deltas against a merged version
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ModelStore modelStore;
+
+    @Autowired
+    private ProgressBroadcaster progressBroadcaster;
+
+    @Autowired
+    private TrainingMetrics metrics;
+
+    @Value("${training.models.topic:training-models}")
+    private String modelsTopic;
+
+    @Value("${training.aggregation.broadcast-every:1}")
+    private int broadcastEvery; // Merged chunks between broadcasts of the running average, the final model is always sent
+
+    @Value("${training.update.retained-versions:16}")
+    private int retainedVersions; // Broadcast models kept per run as delta bases, a few per training slot in use
+
+    @Value("${training.tasks.topic:training-tasks}")
+    private String tasksTopic;
+
+    private final Map<String, ParameterAggregate> aggregates = new ConcurrentHashMap<>();
+    private final Map<String, MergedVersions> bases = new ConcurrentHashMap<>(); // Runs that asked for or send TOPK or THRESHOLD updates
+
+    // Recently finished runs, so a late redelivery does not start a second aggregate that never completes
+    private final Set<String> completed = Collections.newSetFromMap(Collections.synchronizedMap(
+            new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > COMPLETED_RUNS_REMEMBERED;
+                }
+            }));
+
+    @KafkaListener(topics = "${training.results.topic:training-results}", groupId = "${training.results.group-id:parameter-server}",
+            properties = "value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer")
+    public void onUpdate(@Payload byte[] message) {
+        ParameterUpdate update;
+        try {
+            update = MessageCodec.decodeUpdate(message);
+        } catch (IOException e) {
+            logger.error("Discarding malformed parameter update", e);
+            return;
+        }
+        merge(update);
+    }
+
+    /**
+     * Folds one chunk update into its run's running average and broadcasts the result.
+     *
+     * @return the merged model after this update, or null if the update was a duplicate or rejected
+     */
+    MergedModel merge(ParameterUpdate update) {
+        String trainingId = update.getTrainingId();
+        if (completed.contains(trainingId)) {
+            logger.info("Ignoring late update for chunk {} of completed trainingId: {}", update.getChunkIndex(), trainingId);
+            return null;
+        }
+        ParameterAggregate aggregate = aggregates.get(trainingId);
+        if (aggregate == null) {
+            // Decided per run, a re-dispatched chunk's FLOAT32 update must not stop the run keeping its versions
+            if (isDelta(requestedEncoding(trainingId))) {
+                bases.computeIfAbsent(trainingId, id -> new MergedVersions(retainedVersions));
+            }
+            aggregate = aggregates.computeIfAbsent(trainingId, id -> new ParameterAggregate(update.getTotalChunks()));
+        }
+        if (isDelta(update.getEncoding())) {
+            // The request left the encoding to the workers, which chose a delta one
+            bases.computeIfAbsent(trainingId, id -> new MergedVersions(retainedVersions));
+        }
+        boolean added;
+        long start = System.nanoTime();
+        try {
+            Map<String, float[]> params = update.getParams();
+            if (update.getBaseVersion() >= 0 && !aggregate.contains(update.getChunkIndex())) {
+                MergedVersions versions = bases.get(trainingId);
+                params = versions != null ? versions.resolve(update) : null;
+                if (params == null) {
+                    // Evicted, or lost with a restart of this master
+                    redispatchComplete(update);
+                    return null;
+                }
+            }
+            added = aggregate.add(update.getChunkIndex(), update.getSampleCount(), params);
+        } catch (IllegalArgumentException e) {
+            logger.error("Rejected parameter update for trainingId: {}: {}", trainingId, e.getMessage());
+            return null;
+        }
+        if (!added) {
+            logger.info("Ignoring duplicate update for chunk {} of trainingId: {}", update.getChunkIndex(), trainingId);
+            return null;
+        }
+
+        int merged = aggregate.mergedChunks();
+        boolean complete = aggregate.isComplete();
+        MergedModel model = new MergedModel(trainingId, merged, aggregate.totalChunks(), aggregate.sampleCount(),
+                aggregate.average());
+        metrics.record("merge", trainingId, update.getChunkIndex(), System.nanoTime() - start); // Fold and average
+        logger.info("Merged chunk {} into trainingId: {} ({}/{} chunks, {} samples)", update.getChunkIndex(), trainingId,
+                merged, aggregate.totalChunks(), model.getSampleCount());
+
+        if (complete || merged % broadcastEvery == 0) {
+            MergedVersions versions = bases.get(trainingId);
+            if (!complete && versions != null) {
+                // Kept before it is sent, a worker may start from it right away
+                versions.add(model);
+            }
+            // Keyed by trainingId on a compacted topic, only the newest model of a run is retained
+            kafkaTemplate.send(modelsTopic, trainingId, MessageCodec.encodeModel(model));
+        }
+        if (complete) {
+            saveFinalModel(model);
+            completed.add(trainingId);
+            aggregates.remove(trainingId);
+            bases.remove(trainingId);
+        }
+        return model;
+    }
+
+    /**
+     * Drops the running sums of a run that failed, later updates for it are ignored.
+     */
+    public void discard(String trainingId) {
+        completed.add(trainingId);
+        aggregates.remove(trainingId);
+        bases.remove(trainingId);
+    }
+
+    private static boolean isDelta(String encoding) {
+        return encoding != null && DELTA_ENCODINGS.contains(encoding); // Set.of rejects null lookups
+    }
+
+    private String requestedEncoding(String trainingId) {
+        Query query = new Query(Criteria.where("id").is(trainingId));
+        query.fields().include("updateEncoding");
+        TrainingStatus status = mongoTemplate.findOne(query, TrainingStatus.class);
+        return status != null ? status.getUpdateEncoding() : null;
+    }
+
+    /**
+     * Puts a chunk whose delta cannot be rebuilt back on training-tasks, asking for a complete
+     * update this time. The attempt that sent the delta may already have marked the chunk DONE;
+     * it is re-opened either way, and its attempts are dropped so none of them closes it again.
+     */
+    private void redispatchComplete(ParameterUpdate update) {
+        String trainingId = update.getTrainingId();
+        ChunkState chunk = mongoTemplate.findAndModify(
+                new Query(Criteria.where("id").is(ChunkState.idOf(trainingId, update.getChunkIndex()))
+                        .and("state").in("ASSIGNED", "DONE")),
+                new Update().set("state", "PENDING")
+                        .set("publishedAt", Instant.now())
+                        .inc("republishes", 1)
+                        .set("descriptor.model.updateEncoding", "FLOAT32")
+                        .unset("running"),
+                FindAndModifyOptions.options().returnNew(true),
+                ChunkState.class);
+        if (chunk == null) {
+            logger.warn("Update for chunk {} of trainingId: {} is a delta against merged version {}, which is no longer kept,"
+                    + " and the chunk is not tracked or already re-dispatched", update.getChunkIndex(), trainingId,
+                    update.getBaseVersion());
+            return;
+        }
+        ChunkDescriptor descriptor = chunk.getDescriptor();
+        ChunkSupervisor.publishOrReassign(mongoTemplate, chunk, () -> kafkaTemplate.send(tasksTopic,
+                trainingId + "-" + descriptor.getChunkIndex(), MessageCodec.encodeTask(descriptor)));
+        logger.warn("Update for chunk {} of trainingId: {} is a delta against merged version {}, which is no longer kept,"
+                + " re-dispatched it for a complete update", update.getChunkIndex(), trainingId, update.getBaseVersion());
+    }
+
+    private void saveFinalModel(MergedModel model) {
+        // Weights go to GridFS as float32, the status document only keeps a reference and checksum
+        long start = System.nanoTime();
+        ModelStore.StoredModel stored = modelStore.save(model.getTrainingId(), model.getParams());
+        metrics.record("upload", model.getTrainingId(), -1, System.nanoTime() - start);
+        metrics.recordBytes("upload", model.getTrainingId(), -1, stored.getSize());
+        // The run only counts as completed once the merged model is stored
+        Query query = new Query(Criteria.where("id").is(model.getTrainingId()));
+        mongoTemplate.updateFirst(query, new Update()
+                .set("modelRef", stored.getRef())
+                .set("modelChecksum", stored.getChecksum())
+                .set("modelSize", stored.getSize())
+                .set("modelCompressed", stored.isCompressed())
+                .unset("weights") // Left behind by runs from before blob storage
+                .set("status", "COMPLETED")
+                .set("progress", 100), TrainingStatus.class);
+        progressBroadcaster.publish(new ProgressEvent(model.getTrainingId(), "COMPLETED", 100, model.getTotalChunks(),
+                model.getTotalChunks(), -1));
+        logger.info("Stored merged model for trainingId: {} from {} samples", model.getTrainingId(), model.getSampleCount());
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.master_service.service;
+
+import com.example.master_service.model.ProgressEvent;
+import com.example.master_service.model.TrainingStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Pushes training progress to Server-Sent Event subscribers. Workers and the master publish
+ * every transition to the progress topic; each master instance reads the whole topic under its
+ * own consumer group and fans events out in memory, so watchers cost no Mongo reads after the
+ * initial snapshot.
+ */
+@Component
+public class ProgressBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProgressBroadcaster.class);
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StatusCache statusCache;
+
+    @Value("${training.progress.topic:training-progress}")
+    private String progressTopic;
+
+    @Value("${training.progress.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Publishes a transition owned by the master (planned, failed, completed).
+     */
+    public void publish(ProgressEvent event) {
+        statusCache.invalidate(event.getTrainingId()); // Written locally, no need to wait for the event to come back
+        try {
+            // Keyed by trainingId so events of one run stay in order
+            kafkaTemplate.send(progressTopic, event.getTrainingId(), objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize progress event", e);
+        }
+    }
+
+    /**
+     * Opens a stream for one run, starting with the given snapshot of its status. {@code reread}
+     * is asked for the status again once the stream is registered, a run that finished in
+     * between has already fanned out its last event.
+     */
+    public SseEmitter subscribe(String trainingId, TrainingStatus snapshot, Supplier<TrainingStatus> reread) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        ProgressEvent initial = toEvent(snapshot);
+        if (isTerminal(snapshot.getStatus())) {
+            send(emitter, initial);
+            emitter.complete();
+            return emitter;
+        }
+        subscribers.compute(trainingId, (id, emitters) -> {
+            List<SseEmitter> list = emitters != null ? emitters : new CopyOnWriteArrayList<>();
+            list.add(emitter); // Inside compute, so a concurrent unsubscribe cannot drop the list under us
+            return list;
+        });
+        Runnable remove = () -> unsubscribe(trainingId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        // Registered before the snapshot is sent, an event racing with it is delivered twice rather than lost
+        if (!send(emitter, initial)) {
+            unsubscribe(trainingId, emitter);
+            return emitter;
+        }
+        TrainingStatus current = reread.get(); // Served from the status cache unless an event invalidated it
+        if (current != null && isTerminal(current.getStatus())) {
+            unsubscribe(trainingId, emitter);
+            if (send(emitter, toEvent(current))) {
+                emitter.complete();
+            }
+        }
+        return emitter;
+    }
+
+    private static ProgressEvent toEvent(TrainingStatus status) {
+        return new ProgressEvent(status.getId(), status.getStatus(), status.getProgress(),
+                status.getTotalChunks(), status.getCompletedChunks(), -1);
+    }
+
+    @KafkaListener(topics = "${training.progress.topic:training-progress}",
+            groupId = "#{'master-progress-' + T(java.util.UUID).randomUUID()}",
+            properties = "auto.offset.reset=latest")
+    public void onProgress(@Payload String message) {
+        ProgressEvent event;
+        try {
+            event = objectMapper.readValue(message, ProgressEvent.class);
+        } catch (IOException e) {
+            logger.error("Discarding malformed progress event", e);
+            return;
+        }
+        statusCache.invalidate(event.getTrainingId());
+        List<SseEmitter> emitters = subscribers.get(event.getTrainingId());
+        if (emitters == null) {
+            return;
+        }
+        boolean terminal = isTerminal(event.getStatus());
+        for (SseEmitter emitter : emitters) {
+            if (!send(emitter, event)) {
+                unsubscribe(event.getTrainingId(), emitter);
+            } else if (terminal) {
+                emitter.complete();
+            }
+        }
+        if (terminal) {
+            subscribers.remove(event.getTrainingId()); // Nothing follows a terminal state
+        }
+    }
+
+    private boolean send(SseEmitter emitter, ProgressEvent event) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(event, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Dropping progress subscriber: {}", e.getMessage()); // Client went away
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void unsubscribe(String trainingId, SseEmitter emitter) {
+        subscribers.computeIfPresent(trainingId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    int subscriberCount(String trainingId) {
+        List<SseEmitter> emitters = subscribers.get(trainingId);
+        return emitters == null ? 0 : emitters.size();
+    }
+
+    private static boolean isTerminal(String status) {
+        return "COMPLETED".equals(status) || "FAILED".equals(status);
+    }
+}
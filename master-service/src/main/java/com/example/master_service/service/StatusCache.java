@@ -0,0 +1,118 @@
+package com.example.master_service.service;
+
+import com.example.master_service.model.TrainingStatus;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of training status documents, bounded by LRU eviction. Running jobs expire
+ * after a short TTL and are invalidated as soon as a progress event for them arrives; finished
+ * jobs never change again, so they stay until evicted.
+ */
+@Component
+public class StatusCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${training.status-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${training.status-cache.ttl-ms:5000}")
+    private long ttlMs; // Upper bound on staleness should a progress event be missed
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    private final AtomicLong invalidations = new AtomicLong(); // Bumped on every invalidation, guards racing loads
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @PostConstruct
+    void registerMetrics() {
+        FunctionCounter.builder("training.status.cache.gets", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("training.status.cache.gets", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("training.status.cache.size", this, StatusCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached status, or loads and caches it on a miss. Missing runs are not cached.
+     */
+    public TrainingStatus get(String trainingId, Function<String, TrainingStatus> loader) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(trainingId);
+            if (entry != null && (entry.expiresAt == Long.MAX_VALUE || now < entry.expiresAt)) {
+                hits.increment();
+                return entry.status;
+            }
+        }
+        misses.increment();
+        long generation = invalidations.get();
+        TrainingStatus status = loader.apply(trainingId); // Outside the lock, a slow read must not block hits
+        if (status != null) {
+            long expiresAt = isTerminal(status.getStatus()) ? Long.MAX_VALUE : now + ttlMs;
+            synchronized (entries) {
+                // A read that raced with an invalidation may be stale, serve it but do not cache it
+                if (generation == invalidations.get()) {
+                    entries.put(trainingId, new Entry(status, expiresAt));
+                }
+            }
+        }
+        return status;
+    }
+
+    public void invalidate(String trainingId) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(trainingId);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static boolean isTerminal(String status) {
+        return "COMPLETED".equals(status) || "FAILED".equals(status);
+    }
+
+    private static class Entry {
+        final TrainingStatus status;
+        final long expiresAt;
+
+        Entry(TrainingStatus status, long expiresAt) {
+            this.status = status;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
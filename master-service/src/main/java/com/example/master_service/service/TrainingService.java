@@ -1,133 +1,208 @@
 package com.example.master_service.service;
 
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.nio.file.Files;
-import java.util.ArrayList;
+
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
+import com.example.master_service.model.ChunkDescriptor;
+import com.example.master_service.model.LayerSpec;
+import com.example.master_service.model.MessageCodec;
+import com.example.master_service.model.ModelSpec;
+import com.example.master_service.model.ProgressEvent;
 import com.example.master_service.model.TrainingStatus;
 
 @Service
 public class TrainingService {
 
     private static final Logger logger = LoggerFactory.getLogger(TrainingService.class);
-    private static final int NUM_CHUNKS = 4; // Configurable number of chunks
+    private static final Set<String> UPDATERS = Set.of("ADAM", "SGD", "NESTEROVS", "RMSPROP", "ADAGRAD");
 
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
 
     @Autowired
     private MongoTemplate mongoTemplate;
 
     @Autowired
-    private S3Client s3Client; // Add S3Client dependency
+    private ChunkPlanner chunkPlanner;
 
-    public String startTraining(String datasetUrl) {
-        String trainingId = UUID.randomUUID().toString();
-        logger.info("Starting training for dataset: {}, trainingId: {}", datasetUrl, trainingId);
+    @Autowired
+    private ThreadPoolTaskExecutor trainingPlanExecutor;
 
-        // Split dataset into chunks and upload to S3
-        List<String> chunkUrls = splitDataset(datasetUrl);
+    @Autowired
+    private ProgressBroadcaster progressBroadcaster;
 
-        // Publish each chunk to Kafka
-        for (String chunkUrl : chunkUrls) {
-            kafkaTemplate.send("training-tasks", trainingId, chunkUrl);
-            logger.info("Published chunk to Kafka: {}", chunkUrl);
-        }
+    @Autowired
+    private StatusCache statusCache;
+
+    @Autowired
+    private ChunkSupervisor chunkSupervisor;
 
-        // Save initial status to MongoDB
-        TrainingStatus initialStatus = new TrainingStatus(trainingId, "RUNNING", 0);
+    @Autowired
+    private TrainingMetrics metrics;
+
+    /**
+     * Registers the run and queues planning and publishing on the planning executor, so the
+     * caller gets a trainingId back without waiting on S3 or Kafka.
+     *
+     * @param spec network and hyperparameters, null trains the default network
+     * @throws IllegalArgumentException if the spec is invalid
+     * @throws TaskRejectedException if the planning queue is full
+     */
+    public String startTraining(String datasetUrl, ModelSpec spec) {
+        ModelSpec model = spec != null ? spec : new ModelSpec();
+        validate(model); // Rejected up front, a bad spec would otherwise fail every chunk on the workers
+        String trainingId = UUID.randomUUID().toString();
+        logger.info("Starting training for dataset: {}, trainingId: {}", datasetUrl, trainingId);
+
+        TrainingStatus initialStatus = new TrainingStatus(trainingId, "PLANNING", 0);
+        // The parameter server reads it to decide whether the run's merged versions are kept as delta bases
+        initialStatus.setUpdateEncoding(model.getUpdateEncoding() != null ? model.getUpdateEncoding().toUpperCase() : null);
         mongoTemplate.save(initialStatus);
         logger.info("Saved initial status for trainingId: {}", trainingId);
 
+        try {
+            trainingPlanExecutor.execute(() -> planAndPublish(trainingId, datasetUrl, model));
+        } catch (TaskRejectedException e) {
+            // Never admitted, so leave no trace of the run
+            mongoTemplate.remove(new Query(Criteria.where("id").is(trainingId)), TrainingStatus.class);
+            logger.warn("Planning queue full, rejected training for dataset: {}", datasetUrl);
+            throw e;
+        }
         return trainingId;
     }
 
-    public TrainingStatus getTrainingStatus(String trainingId) {
-        return mongoTemplate.findById(trainingId, TrainingStatus.class);
-    }
-
-    private List<String> splitDataset(String datasetUrl) {
-        List<String> chunkUrls = new ArrayList<>();
-        String bucket = datasetUrl.replace("s3://", "").split("/")[0];
-        String key = datasetUrl.replace("s3://", "").split("/", 2)[1];
-        File datasetFile = downloadDataset(bucket, key);
-
+    private void planAndPublish(String trainingId, String datasetUrl, ModelSpec model) {
         try {
-            splitAndUploadDataset(datasetFile, bucket, chunkUrls);
-            datasetFile.delete(); // Clean up original file
-        } catch (Exception e) {
-            logger.error("Failed to split and upload dataset: {}", datasetUrl, e);
-            throw new RuntimeException("Dataset splitting failed", e);
+            Query query = new Query(Criteria.where("id").is(trainingId));
+            // Plan byte ranges over the original object, no chunk copies are written to S3
+            List<ChunkDescriptor> chunks = planChunks(datasetUrl, trainingId);
+
+            // Every chunk carries the spec, so workers need no other source to build the network
+            chunks.forEach(chunk -> chunk.setModel(model));
+
+            // Track every chunk as PENDING so stalls and dead letters can be traced back to it
+            chunkSupervisor.track(chunks);
+
+            // Record the chunk total before any chunk is published so worker updates can compute progress
+            mongoTemplate.updateFirst(query, new Update().set("status", "RUNNING").set("totalChunks", chunks.size()),
+                    TrainingStatus.class);
+            progressBroadcaster.publish(new ProgressEvent(trainingId, "RUNNING", 0, chunks.size(), 0, -1));
+
+            // Publish each chunk descriptor to Kafka, keyed per chunk so a job spreads across all partitions
+            for (ChunkDescriptor chunk : chunks) {
+                int chunkIndex = chunk.getChunkIndex();
+                CompletableFuture<?> send = kafkaTemplate.send("training-tasks", trainingId + "-" + chunkIndex,
+                        MessageCodec.encodeTask(chunk));
+                metrics.recordSend(send, "publish", trainingId, chunkIndex);
+                // A chunk that never reached Kafka stays PENDING, which the reaper does not watch
+                send.whenCompleteAsync((result, error) -> {
+                    if (error != null) {
+                        chunkSupervisor.failRun(trainingId, "Failed to publish chunk " + chunkIndex + ": " + error.getMessage());
+                    }
+                });
+                logger.info("Published chunk {} of s3://{}/{} [{}, {}) to Kafka", chunkIndex,
+                        chunk.getBucket(), chunk.getKey(), chunk.getStartByte(), chunk.getEndByte());
+            }
+        } catch (RuntimeException e) {
+            // Whatever step threw, the run must not stay at PLANNING or RUNNING
+            String reason = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            chunkSupervisor.failRun(trainingId, reason != null ? reason : e.toString());
         }
+    }
 
-        return chunkUrls;
+    static void validate(ModelSpec spec) {
+        if (spec.getLayers() == null) {
+            throw new IllegalArgumentException("layers must not be null");
+        }
+        for (LayerSpec layer : spec.getLayers()) {
+            if (layer == null || layer.getWidth() < 1) {
+                throw new IllegalArgumentException("Every layer needs a width of at least 1");
+            }
+            enumValue(Activation.class, layer.getActivation(), "activation");
+        }
+        enumValue(Activation.class, spec.getOutputActivation(), "outputActivation");
+        enumValue(LossFunctions.LossFunction.class, spec.getLossFunction(), "lossFunction");
+        if (spec.getUpdater() == null || !UPDATERS.contains(spec.getUpdater().toUpperCase())) {
+            throw new IllegalArgumentException("updater must be one of " + UPDATERS + " but was " + spec.getUpdater());
+        }
+        if (!(spec.getLearningRate() > 0)) {
+            throw new IllegalArgumentException("learningRate must be positive but was " + spec.getLearningRate());
+        }
+        if (spec.getEpochs() < 1 || spec.getBatchSize() < 1) {
+            throw new IllegalArgumentException("epochs and batchSize must be at least 1");
+        }
+        if (spec.getNumClasses() != null && spec.getNumClasses() < 2) {
+            throw new IllegalArgumentException("numClasses must be at least 2 but was " + spec.getNumClasses());
+        }
+        if (spec.getNumClasses() != null && spec.getLabelNames() != null
+                && spec.getLabelNames().size() != spec.getNumClasses()) {
+            throw new IllegalArgumentException("Expected " + spec.getNumClasses() + " label names but got " + spec.getLabelNames());
+        }
+        if (spec.getFeatureColumns() != null && (spec.getFeatureColumns().isEmpty()
+                || Set.copyOf(spec.getFeatureColumns()).size() != spec.getFeatureColumns().size())) {
+            throw new IllegalArgumentException("featureColumns must be distinct and not empty, leave it out to use every column");
+        }
+        if (spec.getUpdateEncoding() != null && !MessageCodec.UPDATE_ENCODINGS.contains(spec.getUpdateEncoding().toUpperCase())) {
+            throw new IllegalArgumentException("updateEncoding must be one of " + MessageCodec.UPDATE_ENCODINGS
+                    + " but was " + spec.getUpdateEncoding());
+        }
+        if (spec.getUpdateTopK() != null && !(spec.getUpdateTopK() > 0 && spec.getUpdateTopK() <= 1)) {
+            throw new IllegalArgumentException("updateTopK must be above 0 and at most 1 but was " + spec.getUpdateTopK());
+        }
+        if (spec.getUpdateThreshold() != null && !(spec.getUpdateThreshold() > 0)) {
+            throw new IllegalArgumentException("updateThreshold must be positive but was " + spec.getUpdateThreshold());
+        }
     }
 
-    private File downloadDataset(String bucket, String key) {
-        File localFile = new File("/tmp/" + key);
+    private static <E extends Enum<E>> void enumValue(Class<E> type, String name, String field) {
         try {
-            s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(key).build(), localFile.toPath());
-            logger.info("Downloaded dataset from s3://{}/{}", bucket, key);
-            return localFile;
-        } catch (Exception e) {
-            logger.error("Failed to download dataset from S3: s3://{}/{}", bucket, key, e);
-            throw new RuntimeException("Download failed", e);
+            Enum.valueOf(type, String.valueOf(name).toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + field + ": " + name);
         }
     }
 
-    private void splitAndUploadDataset(File datasetFile, String bucket, List<String> chunkUrls) throws Exception {
-        try (BufferedReader reader = new BufferedReader(new FileReader(datasetFile))) {
-            int totalLines = (int) Files.lines(datasetFile.toPath()).count();
-            int chunkSize = (int) Math.ceil((double) totalLines / NUM_CHUNKS);
-            logger.info("Splitting {} lines into {} chunks, chunk size: {}", totalLines, NUM_CHUNKS, chunkSize);
-
-            String line;
-            int lineCount = 0;
-            int chunkIndex = 0;
-            FileWriter writer = new FileWriter("/tmp/test.csv-chunk-" + chunkIndex);
-
-            while ((line = reader.readLine()) != null) {
-                if (lineCount > 0 && lineCount % chunkSize == 0) {
-                    writer.close();
-                    String chunkUrl = uploadChunk(bucket, chunkIndex);
-                    chunkUrls.add(chunkUrl);
-                    chunkIndex++;
-                    writer = new FileWriter("/tmp/test.csv-chunk-" + chunkIndex);
-                }
-                writer.write(line + "\n");
-                lineCount++;
-            }
-            writer.close();
-            String chunkUrl = uploadChunk(bucket, chunkIndex);
-            chunkUrls.add(chunkUrl);
-        }
+    public TrainingStatus getTrainingStatus(String trainingId) {
+        return statusCache.get(trainingId, this::loadTrainingStatus);
     }
 
-    private String uploadChunk(String bucket, int chunkIndex) {
-        String chunkKey = "test.csv-chunk-" + chunkIndex;
-        File chunkFile = new File("/tmp/" + chunkKey);
+    private TrainingStatus loadTrainingStatus(String trainingId) {
+        Query query = new Query(Criteria.where("id").is(trainingId));
+        query.fields().exclude("weights"); // Documents from before blob storage may still embed them
+        return mongoTemplate.findOne(query, TrainingStatus.class);
+    }
+
+    private List<ChunkDescriptor> planChunks(String datasetUrl, String trainingId) {
+        String bucket = datasetUrl.replace("s3://", "").split("/")[0];
+        String key = datasetUrl.replace("s3://", "").split("/", 2)[1];
         try {
-            s3Client.putObject(PutObjectRequest.builder().bucket(bucket).key(chunkKey).build(), chunkFile.toPath());
-            String chunkUrl = "s3://" + bucket + "/" + chunkKey;
-            logger.info("Uploaded chunk to S3: {}", chunkUrl);
-            return chunkUrl;
-        } finally {
-            chunkFile.delete(); // Clean up even on failure
+            long start = System.nanoTime();
+            ChunkPlanner.ProbeStats probes = new ChunkPlanner.ProbeStats();
+            List<ChunkDescriptor> chunks = chunkPlanner.plan(trainingId, bucket, key, probes);
+            // Download is the S3 probing for row boundaries, split is everything else in planning
+            metrics.record("download", trainingId, -1, probes.nanos);
+            metrics.recordBytes("download", trainingId, -1, probes.bytes);
+            metrics.record("split", trainingId, -1, System.nanoTime() - start - probes.nanos);
+            return chunks;
+        } catch (Exception e) {
+            logger.error("Failed to plan chunks for dataset: {}", datasetUrl, e);
+            throw new RuntimeException("Dataset planning failed", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package com.example.master_service.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageCodecTests {
+
+	@Test
+	void roundTripsTaskWithModelSpec() throws IOException {
+		ChunkDescriptor chunk = new ChunkDescriptor("run-1", "bucket", "data.csv", 35, 4096, "a,b,label", 2, 8);
+		chunk.setEtag("\"abc\"");
+		ModelSpec spec = new ModelSpec();
+		spec.setLayers(List.of(new LayerSpec(64, "RELU"), new LayerSpec(16, "TANH")));
+		spec.setLearningRate(0.01);
+		spec.setFeatureColumns(List.of("a", "b"));
+		spec.setNumClasses(2);
+		spec.setLabelNames(List.of("no", "yes"));
+		spec.setUpdateEncoding("TOPK");
+		spec.setUpdateTopK(0.05);
+		chunk.setModel(spec);
+
+		ChunkDescriptor decoded = MessageCodec.decodeTask(MessageCodec.encodeTask(chunk));
+
+		assertEquals("run-1", decoded.getTrainingId());
+		assertEquals("\"abc\"", decoded.getEtag());
+		assertEquals(35, decoded.getStartByte());
+		assertEquals(4096, decoded.getEndByte());
+		assertEquals("a,b,label", decoded.getHeader());
+		assertEquals(2, decoded.getChunkIndex());
+		assertEquals(8, decoded.getTotalChunks());
+		ModelSpec decodedSpec = decoded.getModel();
+		assertEquals(2, decodedSpec.getLayers().size());
+		assertEquals("TANH", decodedSpec.getLayers().get(1).getActivation());
+		assertEquals(0.01, decodedSpec.getLearningRate());
+		assertEquals(List.of("a", "b"), decodedSpec.getFeatureColumns());
+		assertEquals(2, decodedSpec.getNumClasses());
+		assertNull(decodedSpec.getLabelColumn());
+		assertEquals("TOPK", decodedSpec.getUpdateEncoding());
+		assertEquals(0.05, decodedSpec.getUpdateTopK());
+		assertNull(decodedSpec.getUpdateThreshold());
+	}
+
+	@Test
+	void roundTripsParameterUpdate() throws IOException {
+		Map<String, float[]> params = new LinkedHashMap<>();
+		params.put("0_W", new float[]{0.5f, -1.25f, 3e-8f});
+		params.put("0_b", new float[]{Float.MIN_VALUE});
+		ParameterUpdate update = new ParameterUpdate("run-1", 3, 8, 1000, params);
+
+		byte[] message = MessageCodec.encodeUpdate(update);
+		ParameterUpdate decoded = MessageCodec.decodeUpdate(message);
+
+		assertEquals(3, decoded.getChunkIndex());
+		assertEquals(1000, decoded.getSampleCount());
+		assertEquals(List.of("0_W", "0_b"), List.copyOf(decoded.getParams().keySet()));
+		assertArrayEquals(params.get("0_W"), decoded.getParams().get("0_W"));
+		assertArrayEquals(params.get("0_b"), decoded.getParams().get("0_b"));
+	}
+
+	@Test
+	void roundsHalfPrecisionUpdatesAndKeepsSparseDeltasExact() throws IOException {
+		Map<String, float[]> params = new LinkedHashMap<>();
+		params.put("0_W", new float[]{1f, -0.1f, 65504f, 1e6f, 0x1p-24f, 0x1p-26f, 0f});
+		ParameterUpdate update = new ParameterUpdate("run-1", 0, 2, 10, params);
+		update.setEncoding("FP16");
+
+		float[] fp16 = MessageCodec.decodeUpdate(MessageCodec.encodeUpdate(update)).getParams().get("0_W");
+		assertArrayEquals(new float[]{1f, -0.099975586f, 65504f, Float.POSITIVE_INFINITY, 0x1p-24f, 0f, 0f}, fp16);
+
+		update.setEncoding("BF16");
+		float[] bf16 = MessageCodec.decodeUpdate(MessageCodec.encodeUpdate(update)).getParams().get("0_W");
+		assertEquals(-0.100097656f, bf16[1]);
+		assertEquals(999424f, bf16[3]);
+
+		float[] delta = new float[1000];
+		delta[3] = 0.25f;
+		delta[999] = -1e-7f;
+		ParameterUpdate sparse = new ParameterUpdate("run-1", 1, 2, 10, Map.of("0_W", delta));
+		sparse.setEncoding("TOPK");
+		sparse.setBaseVersion(3);
+		byte[] message = MessageCodec.encodeUpdate(sparse);
+		ParameterUpdate decoded = MessageCodec.decodeUpdate(message);
+
+		assertTrue(message.length < 100); // Two entries, not a thousand floats
+		assertArrayEquals(delta, decoded.getParams().get("0_W"));
+		assertEquals("TOPK", decoded.getEncoding());
+		assertEquals(3, decoded.getBaseVersion());
+	}
+
+	@Test
+	void rejectsTruncatedAndForeignMessages() {
+		byte[] model = MessageCodec.encodeModel(new MergedModel("run-1", 1, 2, 10, Map.of("0_W", new float[4])));
+
+		assertThrows(IOException.class, () -> MessageCodec.decodeModel(Arrays.copyOf(model, model.length - 1)));
+		assertThrows(IOException.class, () -> MessageCodec.decodeUpdate(model));
+	}
+}
@@ -0,0 +1,43 @@
+package com.example.master_service.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChunkPlannerTests {
+
+	private static final long MB = 1024 * 1024;
+
+	private final ChunkPlanner planner = new ChunkPlanner();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(planner, "targetChunkBytes", 64 * MB);
+		ReflectionTestUtils.setField(planner, "minChunkBytes", MB);
+		ReflectionTestUtils.setField(planner, "maxChunks", 1024);
+	}
+
+	@Test
+	void roundsUpToWorkerParallelism() {
+		assertEquals(32, planner.chunkCount(100 * MB, 32));
+		assertEquals(64, planner.chunkCount(33 * 64 * MB, 32));
+	}
+
+	@Test
+	void sizesByTargetWhenWorkersAreFew() {
+		assertEquals(16, planner.chunkCount(16 * 64 * MB, 1));
+	}
+
+	@Test
+	void neverSplitsBelowMinimumChunkSize() {
+		assertEquals(3, planner.chunkCount(3 * MB, 32));
+		assertEquals(1, planner.chunkCount(1000, 32));
+	}
+
+	@Test
+	void capsAtMaxChunks() {
+		assertEquals(1024, planner.chunkCount(2000L * 64 * MB, 1));
+	}
+}
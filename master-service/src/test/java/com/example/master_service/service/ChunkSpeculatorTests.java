@@ -0,0 +1,103 @@
+package com.example.master_service.service;
+
+import com.example.master_service.model.ChunkDescriptor;
+import com.example.master_service.model.ChunkState;
+import com.mongodb.client.result.UpdateResult;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.utils.Utils;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChunkSpeculatorTests {
+
+	@Test
+	void takesMedianOfFinishedDurations() {
+		assertEquals(20, ChunkSpeculator.median(new long[]{50, 10, 20}));
+		assertEquals(15, ChunkSpeculator.median(new long[]{20, 10, 40, 10}));
+	}
+
+	@Test
+	void flagsChunksPastFactorOfMedian() {
+		assertFalse(ChunkSpeculator.isStraggler(19_000, 10_000, 2.0));
+		assertTrue(ChunkSpeculator.isStraggler(21_000, 10_000, 2.0));
+	}
+
+	@Test
+	void neverPicksTheKeysOwnPartition() {
+		String key = "run-1-7";
+		int home = Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % 32;
+		for (int i = 0; i < 200; i++) {
+			int partition = ChunkSpeculator.otherPartition(key, 32);
+			assertNotEquals(home, partition);
+			assertTrue(partition >= 0 && partition < 32);
+		}
+		assertEquals(0, ChunkSpeculator.otherPartition(key, 1));
+	}
+
+	private static ChunkState chunk(int index, String state, Instant assignedAt, Instant finishedAt) {
+		ChunkState chunk = new ChunkState(new ChunkDescriptor("run-1", "bucket", "data.csv", 0, 100, "a,b,label", index, 4));
+		chunk.setState(state);
+		chunk.setAssignedAt(assignedAt);
+		chunk.setFinishedAt(finishedAt);
+		return chunk;
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void clearsFlagWhenDuplicateIsNotSent() {
+		MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+		KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+		ChunkSpeculator speculator = new ChunkSpeculator();
+		ReflectionTestUtils.setField(speculator, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(speculator, "kafkaTemplate", kafkaTemplate);
+		ReflectionTestUtils.setField(speculator, "tasksTopic", "training-tasks");
+		ReflectionTestUtils.setField(speculator, "enabled", true);
+		ReflectionTestUtils.setField(speculator, "factor", 2.0);
+		ReflectionTestUtils.setField(speculator, "minDone", 3);
+		ReflectionTestUtils.setField(speculator, "minRuntimeMs", 30_000L);
+
+		Instant now = Instant.now();
+		List<ChunkState> done = List.of(chunk(0, "DONE", now.minusSeconds(100), now.minusSeconds(90)),
+				chunk(1, "DONE", now.minusSeconds(100), now.minusSeconds(90)),
+				chunk(2, "DONE", now.minusSeconds(100), now.minusSeconds(90)));
+		when(mongoTemplate.find(any(Query.class), eq(ChunkState.class)))
+				.thenReturn(List.of(chunk(3, "ASSIGNED", now.minusSeconds(600), null)), done);
+		when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(ChunkState.class)))
+				.thenReturn(UpdateResult.acknowledged(1, 1L, null));
+		when(kafkaTemplate.partitionsFor("training-tasks")).thenReturn(List.of(
+				new PartitionInfo("training-tasks", 0, null, null, null), new PartitionInfo("training-tasks", 1, null, null, null)));
+		when(kafkaTemplate.send(eq("training-tasks"), anyInt(), anyString(), any(byte[].class)))
+				.thenReturn(CompletableFuture.failedFuture(new KafkaException("Broker unavailable")));
+
+		speculator.speculate();
+
+		// Flagged before the send, cleared again so a later round can launch the duplicate
+		verify(mongoTemplate, timeout(1000)).updateFirst(any(Query.class),
+				argThat(update -> update.getUpdateObject().containsKey("$unset")), eq(ChunkState.class));
+	}
+
+}
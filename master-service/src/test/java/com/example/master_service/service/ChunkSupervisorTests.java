@@ -0,0 +1,155 @@
+package com.example.master_service.service;
+
+import com.example.master_service.model.ChunkDescriptor;
+import com.example.master_service.model.ChunkState;
+import com.example.master_service.model.MessageCodec;
+import com.example.master_service.model.ProgressEvent;
+import com.example.master_service.model.TrainingStatus;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChunkSupervisorTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+
+	private final ProgressBroadcaster progressBroadcaster = mock(ProgressBroadcaster.class);
+
+	private final ParameterServer parameterServer = mock(ParameterServer.class);
+
+	private final ChunkSupervisor supervisor = new ChunkSupervisor();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(supervisor, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(supervisor, "kafkaTemplate", kafkaTemplate);
+		ReflectionTestUtils.setField(supervisor, "progressBroadcaster", progressBroadcaster);
+		ReflectionTestUtils.setField(supervisor, "parameterServer", parameterServer);
+		ReflectionTestUtils.setField(supervisor, "tasksTopic", "training-tasks");
+		ReflectionTestUtils.setField(supervisor, "stallTimeoutMs", 60_000L);
+		ReflectionTestUtils.setField(supervisor, "maxRepublishes", 3);
+		ReflectionTestUtils.setField(supervisor, "batchSize", 500);
+		when(mongoTemplate.indexOps(ChunkState.class)).thenReturn(mock(IndexOperations.class));
+	}
+
+	private static ChunkState stalled(int republishes) {
+		ChunkState chunk = new ChunkState(new ChunkDescriptor("run-1", "bucket", "data.csv", 0, 100, "a,b,label", 2, 4));
+		chunk.setState("ASSIGNED");
+		chunk.setHeartbeatAt(Instant.now().minusSeconds(600));
+		chunk.setRepublishes(republishes);
+		return chunk;
+	}
+
+	@Test
+	void republishesStalledChunk() {
+		ChunkState chunk = stalled(0);
+		when(mongoTemplate.find(any(Query.class), eq(ChunkState.class))).thenReturn(List.of(chunk));
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(ChunkState.class))).thenReturn(chunk);
+		when(kafkaTemplate.send(anyString(), anyString(), any(byte[].class))).thenReturn(CompletableFuture.completedFuture(null));
+
+		supervisor.reapStalledChunks();
+
+		verify(kafkaTemplate).send(eq("training-tasks"), eq("run-1-2"), any(byte[].class));
+		verify(progressBroadcaster, never()).publish(any());
+	}
+
+	@Test
+	void returnsChunkToAssignedWhenRepublishIsNotSent() {
+		ChunkState chunk = stalled(0);
+		when(mongoTemplate.find(any(Query.class), eq(ChunkState.class))).thenReturn(List.of(chunk));
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(ChunkState.class))).thenReturn(chunk);
+		when(kafkaTemplate.send(anyString(), anyString(), any(byte[].class)))
+				.thenReturn(CompletableFuture.failedFuture(new KafkaException("Broker unavailable")));
+
+		supervisor.reapStalledChunks();
+
+		// Left PENDING nothing would re-dispatch it, ASSIGNED with a stale heartbeat is reaped again
+		verify(mongoTemplate, timeout(1000)).updateFirst(
+				argThat(query -> "PENDING".equals(query.getQueryObject().get("state"))),
+				argThat(update -> "ASSIGNED".equals(update.getUpdateObject().get("$set", Document.class).get("state"))),
+				eq(ChunkState.class));
+	}
+
+	@Test
+	void skipsChunkClaimedByAnotherMaster() {
+		when(mongoTemplate.find(any(Query.class), eq(ChunkState.class))).thenReturn(List.of(stalled(0)));
+
+		supervisor.reapStalledChunks();
+
+		verify(kafkaTemplate, never()).send(anyString(), anyString(), any(byte[].class));
+	}
+
+	@Test
+	void failsRunWhenChunkKeepsStalling() {
+		TrainingStatus status = new TrainingStatus("run-1", "FAILED", 50);
+		when(mongoTemplate.find(any(Query.class), eq(ChunkState.class))).thenReturn(List.of(stalled(3)));
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(TrainingStatus.class))).thenReturn(status);
+
+		supervisor.reapStalledChunks();
+
+		verify(kafkaTemplate, never()).send(anyString(), anyString(), any(byte[].class));
+		verify(parameterServer).discard("run-1");
+		verify(progressBroadcaster).publish(any(ProgressEvent.class));
+	}
+
+	private static ConsumerRecord<String, byte[]> deadLetter() {
+		ChunkDescriptor chunk = new ChunkDescriptor("run-1", "bucket", "data.csv", 0, 100, "a,b,label", 2, 4);
+		return new ConsumerRecord<>("training-tasks.DLT", 0, 0, "run-1-2", MessageCodec.encodeTask(chunk));
+	}
+
+	@Test
+	void keepsChunkWhoseOtherAttemptIsStillLive() {
+		// The guarded update finds a running attempt with a fresh heartbeat and leaves the chunk alone
+		when(mongoTemplate.exists(any(Query.class), eq(ChunkState.class))).thenReturn(true);
+
+		supervisor.onDeadLetter(deadLetter());
+
+		verify(mongoTemplate).findAndModify(argThat((Query query) -> query.getQueryObject().containsKey("running")),
+				any(UpdateDefinition.class), eq(ChunkState.class));
+		verify(parameterServer, never()).discard(anyString());
+		verify(progressBroadcaster, never()).publish(any());
+	}
+
+	@Test
+	void failsRunWhenDeadLetteredChunkHasNoLiveAttempt() {
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), eq(ChunkState.class)))
+				.thenReturn(stalled(0));
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(TrainingStatus.class))).thenReturn(new TrainingStatus("run-1", "FAILED", 50));
+
+		supervisor.onDeadLetter(deadLetter());
+
+		verify(parameterServer).discard("run-1");
+		verify(progressBroadcaster).publish(any(ProgressEvent.class));
+	}
+
+}
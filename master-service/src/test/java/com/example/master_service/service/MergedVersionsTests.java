@@ -0,0 +1,49 @@
+package com.example.master_service.service;
+
+import com.example.master_service.model.MergedModel;
+import com.example.master_service.model.ParameterUpdate;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MergedVersionsTests {
+
+	private static ParameterUpdate delta(int baseVersion, float... values) {
+		ParameterUpdate update = new ParameterUpdate("run-1", 2, 4, 10, Map.of("0_W", values));
+		update.setEncoding("TOPK");
+		update.setBaseVersion(baseVersion);
+		return update;
+	}
+
+	@Test
+	void addsDeltaToTheVersionItWasTakenAgainst() {
+		MergedVersions versions = new MergedVersions(2);
+		versions.add(new MergedModel("run-1", 1, 4, 10, Map.of("0_W", new float[]{1f, 2f, 3f})));
+		versions.add(new MergedModel("run-1", 2, 4, 20, Map.of("0_W", new float[]{5f, 5f, 5f})));
+
+		assertArrayEquals(new float[]{1.5f, 2f, 3f}, versions.resolve(delta(1, 0.5f, 0f, 0f)).get("0_W"));
+		assertArrayEquals(new float[]{5f, 5f, 4f}, versions.resolve(delta(2, 0f, 0f, -1f)).get("0_W"));
+	}
+
+	@Test
+	void forgetsVersionsBeyondTheRetainedOnes() {
+		MergedVersions versions = new MergedVersions(1);
+		versions.add(new MergedModel("run-1", 1, 4, 10, Map.of("0_W", new float[]{1f})));
+		versions.add(new MergedModel("run-1", 2, 4, 20, Map.of("0_W", new float[]{2f})));
+
+		assertNull(versions.resolve(delta(1, 0.5f)));
+		assertArrayEquals(new float[]{2.5f}, versions.resolve(delta(2, 0.5f)).get("0_W"));
+	}
+
+	@Test
+	void rejectsDeltaOfAnotherLayout() {
+		MergedVersions versions = new MergedVersions(1);
+		versions.add(new MergedModel("run-1", 1, 4, 10, Map.of("0_W", new float[]{1f, 2f})));
+
+		assertThrows(IllegalArgumentException.class, () -> versions.resolve(delta(1, 0.5f)));
+	}
+}
@@ -0,0 +1,43 @@
+package com.example.master_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelStoreTests {
+
+	private static Map<String, float[]> params() {
+		Map<String, float[]> params = new LinkedHashMap<>();
+		params.put("0_W", new float[]{0.5f, -1.25f, 3e-7f, Float.MAX_VALUE});
+		params.put("0_b", new float[]{0f, 0f});
+		params.put("1_W", new float[2048]);
+		return params;
+	}
+
+	@Test
+	void roundTripsRawFloat32() throws Exception {
+		byte[] blob = ModelStore.encode(params(), false);
+		assertEquals(8 + 3 * 8 + 3 * 3 + (4 + 2 + 2048) * 4, blob.length);
+
+		Map<String, float[]> decoded = ModelStore.decode(new ByteArrayInputStream(blob), false);
+		assertEquals(params().keySet(), decoded.keySet());
+		params().forEach((name, values) -> assertArrayEquals(values, decoded.get(name)));
+	}
+
+	@Test
+	void roundTripsCompressed() throws Exception {
+		byte[] raw = ModelStore.encode(params(), false);
+		byte[] blob = ModelStore.encode(params(), true);
+		assertTrue(blob.length < raw.length);
+
+		Map<String, float[]> decoded = ModelStore.decode(new ByteArrayInputStream(blob), true);
+		params().forEach((name, values) -> assertArrayEquals(values, decoded.get(name)));
+	}
+
+}
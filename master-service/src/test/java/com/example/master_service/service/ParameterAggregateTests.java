@@ -0,0 +1,42 @@
+package com.example.master_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParameterAggregateTests {
+
+	@Test
+	void averagesWeightedBySampleCount() {
+		ParameterAggregate aggregate = new ParameterAggregate(2);
+		aggregate.add(0, 1, Map.of("0_W", new float[]{1f, 2f}));
+		aggregate.add(1, 3, Map.of("0_W", new float[]{5f, 6f}));
+
+		assertTrue(aggregate.isComplete());
+		assertArrayEquals(new float[]{4f, 5f}, aggregate.average().get("0_W"));
+	}
+
+	@Test
+	void countsRedeliveredChunkOnce() {
+		ParameterAggregate aggregate = new ParameterAggregate(2);
+		assertTrue(aggregate.add(0, 10, Map.of("0_b", new float[]{1f})));
+		assertFalse(aggregate.add(0, 10, Map.of("0_b", new float[]{9f})));
+
+		assertFalse(aggregate.isComplete());
+		assertArrayEquals(new float[]{1f}, aggregate.average().get("0_b"));
+	}
+
+	@Test
+	void rejectsMismatchedLayout() {
+		ParameterAggregate aggregate = new ParameterAggregate(2);
+		aggregate.add(0, 1, Map.of("0_W", new float[]{1f, 2f}));
+
+		assertThrows(IllegalArgumentException.class, () -> aggregate.add(1, 1, Map.of("0_W", new float[]{1f})));
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.example.master_service.service;
+
+import com.example.master_service.model.ChunkDescriptor;
+import com.example.master_service.model.ChunkState;
+import com.example.master_service.model.MergedModel;
+import com.example.master_service.model.MessageCodec;
+import com.example.master_service.model.ModelSpec;
+import com.example.master_service.model.ParameterUpdate;
+import com.example.master_service.model.TrainingStatus;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ParameterServerTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+
+	private final ModelStore modelStore = mock(ModelStore.class);
+
+	private final ParameterServer parameterServer = new ParameterServer();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(parameterServer, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(parameterServer, "kafkaTemplate", kafkaTemplate);
+		ReflectionTestUtils.setField(parameterServer, "modelStore", modelStore);
+		ReflectionTestUtils.setField(parameterServer, "progressBroadcaster", mock(ProgressBroadcaster.class));
+		ReflectionTestUtils.setField(parameterServer, "metrics", mock(TrainingMetrics.class));
+		ReflectionTestUtils.setField(parameterServer, "modelsTopic", "training-models");
+		ReflectionTestUtils.setField(parameterServer, "tasksTopic", "training-tasks");
+		ReflectionTestUtils.setField(parameterServer, "broadcastEvery", 1);
+		ReflectionTestUtils.setField(parameterServer, "retainedVersions", 1);
+		when(kafkaTemplate.send(anyString(), anyString(), any(byte[].class))).thenReturn(CompletableFuture.completedFuture(null));
+		when(modelStore.save(anyString(), anyMap())).thenReturn(new ModelStore.StoredModel("ref", "checksum", 8, false));
+	}
+
+	private static ParameterUpdate update(int chunkIndex, String encoding, int baseVersion, float... values) {
+		ParameterUpdate update = new ParameterUpdate("run-1", chunkIndex, 3, 10, Map.of("0_W", values));
+		update.setEncoding(encoding);
+		update.setBaseVersion(baseVersion);
+		return update;
+	}
+
+	private void requestEncoding(String encoding) {
+		TrainingStatus status = new TrainingStatus("run-1", "RUNNING", 0);
+		status.setUpdateEncoding(encoding);
+		when(mongoTemplate.findOne(any(Query.class), eq(TrainingStatus.class))).thenReturn(status);
+	}
+
+	@Test
+	void redispatchesChunkWhoseDeltaLostItsBaseAndCompletesTheRun() throws Exception {
+		// The chunk document as the worker that sent the delta left it, returned re-opened
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(ChunkState.class))).thenAnswer(invocation -> {
+					ModelSpec spec = new ModelSpec();
+					Document set = invocation.getArgument(1, Update.class).getUpdateObject().get("$set", Document.class);
+					spec.setUpdateEncoding(set.getString("descriptor.model.updateEncoding"));
+					ChunkDescriptor descriptor = new ChunkDescriptor("run-1", "bucket", "data.csv", 0, 100, "a,b,label", 2, 3);
+					descriptor.setModel(spec);
+					return new ChunkState(descriptor);
+				});
+
+		requestEncoding("TOPK");
+
+		assertNotNull(parameterServer.merge(update(0, "TOPK", -1, 2f, 2f))); // Complete, v1 = {2, 2}
+		MergedModel second = parameterServer.merge(update(1, "TOPK", 1, 2f, 0f)); // v1 + delta = {4, 2}, v2 = {3, 2}
+		assertArrayEquals(new float[]{3f, 2f}, second.getParams().get("0_W"));
+
+		// Only v2 is kept now, so chunk 2's delta against v1 cannot be rebuilt
+		assertNull(parameterServer.merge(update(2, "TOPK", 1, 1f, 1f)));
+		ArgumentCaptor<byte[]> task = ArgumentCaptor.forClass(byte[].class);
+		verify(kafkaTemplate).send(eq("training-tasks"), eq("run-1-2"), task.capture());
+		assertEquals("FLOAT32", MessageCodec.decodeTask(task.getValue()).getModel().getUpdateEncoding());
+		verify(modelStore, never()).save(anyString(), anyMap());
+
+		// The re-dispatched attempt sends its chunk complete, as FLOAT32
+		MergedModel last = parameterServer.merge(update(2, "FLOAT32", -1, 3f, 2f));
+		assertArrayEquals(new float[]{3f, 2f}, last.getParams().get("0_W"));
+		verify(modelStore).save(eq("run-1"), anyMap());
+		verify(mongoTemplate).updateFirst(any(Query.class),
+				argThat(update -> "COMPLETED".equals(update.getUpdateObject().get("$set", Document.class).get("status"))),
+				eq(TrainingStatus.class));
+	}
+
+	@Test
+	void keepsVersionProducedByFullUpdateOfDeltaRun() {
+		requestEncoding("TOPK");
+
+		// A re-dispatched chunk comes back complete and FLOAT32, the version it produces is still a base
+		parameterServer.merge(update(0, "FLOAT32", -1, 2f, 2f)); // v1 = {2, 2}
+		MergedModel second = parameterServer.merge(update(1, "TOPK", 1, 1f, 0f)); // v1 + delta = {3, 2}
+
+		assertNotNull(second);
+		assertArrayEquals(new float[]{2.5f, 2f}, second.getParams().get("0_W"));
+		verify(kafkaTemplate, never()).send(eq("training-tasks"), anyString(), any(byte[].class));
+	}
+}
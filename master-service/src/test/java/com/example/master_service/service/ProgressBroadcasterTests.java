@@ -0,0 +1,54 @@
+package com.example.master_service.service;
+
+import com.example.master_service.model.ProgressEvent;
+import com.example.master_service.model.TrainingStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProgressBroadcasterTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final ProgressBroadcaster broadcaster = new ProgressBroadcaster();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(broadcaster, "objectMapper", objectMapper);
+		ReflectionTestUtils.setField(broadcaster, "sseTimeoutMs", 60_000L);
+		ReflectionTestUtils.setField(broadcaster, "statusCache", new StatusCache());
+	}
+
+	@Test
+	void keepsSubscribersUntilTerminalEvent() throws Exception {
+		TrainingStatus running = new TrainingStatus("run-1", "RUNNING", 0);
+		broadcaster.subscribe("run-1", running, () -> running);
+		broadcaster.subscribe("run-1", running, () -> running);
+		assertEquals(2, broadcaster.subscriberCount("run-1"));
+
+		broadcaster.onProgress(objectMapper.writeValueAsString(new ProgressEvent("run-1", "RUNNING", 50, 2, 1, 0)));
+		assertEquals(2, broadcaster.subscriberCount("run-1"));
+
+		broadcaster.onProgress(objectMapper.writeValueAsString(new ProgressEvent("run-1", "COMPLETED", 100, 2, 2, -1)));
+		assertEquals(0, broadcaster.subscriberCount("run-1"));
+	}
+
+	@Test
+	void closesImmediatelyForFinishedRun() {
+		TrainingStatus completed = new TrainingStatus("run-2", "COMPLETED", 100);
+		broadcaster.subscribe("run-2", completed, () -> completed);
+		assertEquals(0, broadcaster.subscriberCount("run-2"));
+	}
+
+	@Test
+	void closesWhenRunFinishedWhileSubscribing() {
+		// The terminal event went out between the snapshot and the registration
+		broadcaster.subscribe("run-3", new TrainingStatus("run-3", "RUNNING", 50),
+				() -> new TrainingStatus("run-3", "COMPLETED", 100));
+		assertEquals(0, broadcaster.subscriberCount("run-3"));
+	}
+
+}
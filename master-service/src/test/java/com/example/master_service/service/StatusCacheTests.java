@@ -0,0 +1,94 @@
+package com.example.master_service.service;
+
+import com.example.master_service.model.TrainingStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class StatusCacheTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final StatusCache cache = new StatusCache();
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private String state = "RUNNING";
+
+	private final Function<String, TrainingStatus> loader = id -> {
+		loads.incrementAndGet();
+		return "missing".equals(id) ? null : new TrainingStatus(id, state, 0);
+	};
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(cache, "maxEntries", 2);
+		ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+		cache.registerMetrics();
+	}
+
+	@Test
+	void servesRepeatedReadsFromMemory() {
+		cache.get("a", loader);
+		cache.get("a", loader);
+		cache.get("a", loader);
+
+		assertEquals(1, loads.get());
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(2.0, meterRegistry.get("training.status.cache.gets").tag("result", "hit").functionCounter().count());
+	}
+
+	@Test
+	void reloadsAfterInvalidation() {
+		cache.get("a", loader);
+		state = "MERGING";
+		cache.invalidate("a");
+
+		assertEquals("MERGING", cache.get("a", loader).getStatus());
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void expiresRunningButNotTerminalStates() {
+		ReflectionTestUtils.setField(cache, "ttlMs", 0L);
+		cache.get("a", loader);
+		cache.get("a", loader);
+		assertEquals(2, loads.get());
+
+		state = "COMPLETED";
+		cache.get("b", loader);
+		cache.get("b", loader);
+		assertEquals(3, loads.get());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsed() {
+		cache.get("a", loader);
+		cache.get("b", loader);
+		cache.get("a", loader);
+		cache.get("c", loader); // Evicts b
+
+		assertEquals(2, cache.size());
+		cache.get("a", loader);
+		assertEquals(3, loads.get());
+		cache.get("b", loader);
+		assertEquals(4, loads.get());
+	}
+
+	@Test
+	void doesNotCacheMissingRuns() {
+		assertNull(cache.get("missing", loader));
+		assertNull(cache.get("missing", loader));
+		assertEquals(2, loads.get());
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.example.master_service.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrainingMetricsTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final TrainingMetrics metrics = new TrainingMetrics();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(metrics, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(metrics, "retentionMs", 60_000L);
+	}
+
+	@Test
+	void tagsStagesByRunAndChunk() {
+		metrics.record("split", "run-1", -1, 5_000_000);
+		metrics.recordBytes("download", "run-1", -1, 4096);
+		CompletableFuture<String> send = new CompletableFuture<>();
+		metrics.recordSend(send, "publish", "run-1", 3);
+		assertNull(meterRegistry.find("training.stage").tag("stage", "publish").timer()); // Not acknowledged yet
+		send.complete("ack");
+
+		Timer split = meterRegistry.get("training.stage").tags("stage", "split", "trainingId", "run-1", "chunk", "all").timer();
+		assertEquals(5.0, split.totalTime(TimeUnit.MILLISECONDS), 1e-9);
+		assertEquals(4096.0, meterRegistry.get("training.stage.bytes").tag("stage", "download").summary().totalAmount());
+		assertEquals(1, meterRegistry.get("training.stage").tags("stage", "publish", "chunk", "3").timer().count());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void removesMetersOfIdleRunsOnly() {
+		metrics.record("split", "old", -1, 1);
+		metrics.recordBytes("download", "old", -1, 1);
+		metrics.record("split", "new", -1, 1);
+		((Map<String, Long>) ReflectionTestUtils.getField(metrics, "lastRecorded")).put("old", 0L); // Idle since 1970
+
+		metrics.removeIdleRuns();
+
+		assertTrue(meterRegistry.find("training.stage").tag("trainingId", "old").meters().isEmpty());
+		assertTrue(meterRegistry.find("training.stage.bytes").tag("trainingId", "old").meters().isEmpty());
+		assertEquals(1, meterRegistry.find("training.stage").tag("trainingId", "new").timers().size());
+	}
+}
@@ -0,0 +1,121 @@
+package com.example.master_service.service;
+
+import com.example.master_service.model.ChunkDescriptor;
+import com.example.master_service.model.LayerSpec;
+import com.example.master_service.model.ModelSpec;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TrainingServiceTests {
+
+	@Test
+	void acceptsDefaultAndCustomSpecs() {
+		assertDoesNotThrow(() -> TrainingService.validate(new ModelSpec()));
+
+		ModelSpec spec = new ModelSpec();
+		spec.setLayers(List.of(new LayerSpec(256, "relu"), new LayerSpec(64, "TANH")));
+		spec.setUpdater("nesterovs");
+		spec.setEpochs(5);
+		spec.setBatchSize(512);
+		spec.setFeatureColumns(List.of("daily_usage_gb", "peak_usage_gb"));
+		spec.setNumClasses(2);
+		spec.setUpdateEncoding("topk");
+		spec.setUpdateTopK(0.05);
+		assertDoesNotThrow(() -> TrainingService.validate(spec));
+	}
+
+	@Test
+	void rejectsInvalidSpecs() {
+		ModelSpec badActivation = new ModelSpec();
+		badActivation.setLayers(List.of(new LayerSpec(10, "NOPE")));
+		assertThrows(IllegalArgumentException.class, () -> TrainingService.validate(badActivation));
+
+		ModelSpec badUpdater = new ModelSpec();
+		badUpdater.setUpdater("LBFGS");
+		assertThrows(IllegalArgumentException.class, () -> TrainingService.validate(badUpdater));
+
+		ModelSpec badBatch = new ModelSpec();
+		badBatch.setBatchSize(0);
+		assertThrows(IllegalArgumentException.class, () -> TrainingService.validate(badBatch));
+
+		ModelSpec badLabels = new ModelSpec();
+		badLabels.setNumClasses(3);
+		badLabels.setLabelNames(List.of("a", "b"));
+		assertThrows(IllegalArgumentException.class, () -> TrainingService.validate(badLabels));
+
+		ModelSpec badEncoding = new ModelSpec();
+		badEncoding.setUpdateEncoding("GZIP");
+		assertThrows(IllegalArgumentException.class, () -> TrainingService.validate(badEncoding));
+
+		ModelSpec badTopK = new ModelSpec();
+		badTopK.setUpdateTopK(1.5);
+		assertThrows(IllegalArgumentException.class, () -> TrainingService.validate(badTopK));
+	}
+
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+
+	private final ChunkSupervisor chunkSupervisor = mock(ChunkSupervisor.class);
+
+	private TrainingService plannedService() {
+		TrainingService service = new TrainingService();
+		ChunkPlanner chunkPlanner = mock(ChunkPlanner.class);
+		when(chunkPlanner.plan(anyString(), anyString(), anyString(), any(ChunkPlanner.ProbeStats.class))).thenReturn(List.of(
+				new ChunkDescriptor("run-1", "bucket", "data.csv", 0, 100, "a,b,label", 0, 2),
+				new ChunkDescriptor("run-1", "bucket", "data.csv", 100, 200, "a,b,label", 1, 2)));
+		ThreadPoolTaskExecutor executor = mock(ThreadPoolTaskExecutor.class);
+		doAnswer(invocation -> {
+			invocation.<Runnable>getArgument(0).run(); // Plans on the caller's thread
+			return null;
+		}).when(executor).execute(any(Runnable.class));
+		ReflectionTestUtils.setField(service, "kafkaTemplate", kafkaTemplate);
+		ReflectionTestUtils.setField(service, "mongoTemplate", mock(MongoTemplate.class));
+		ReflectionTestUtils.setField(service, "chunkPlanner", chunkPlanner);
+		ReflectionTestUtils.setField(service, "trainingPlanExecutor", executor);
+		ReflectionTestUtils.setField(service, "progressBroadcaster", mock(ProgressBroadcaster.class));
+		ReflectionTestUtils.setField(service, "chunkSupervisor", chunkSupervisor);
+		ReflectionTestUtils.setField(service, "metrics", mock(TrainingMetrics.class));
+		return service;
+	}
+
+	@Test
+	void failsRunWhenPublishingThrows() {
+		when(kafkaTemplate.send(eq("training-tasks"), anyString(), any(byte[].class)))
+				.thenThrow(new KafkaException("Broker unreachable"));
+
+		String trainingId = plannedService().startTraining("s3://bucket/data.csv", null);
+
+		verify(chunkSupervisor).failRun(trainingId, "Broker unreachable");
+	}
+
+	@Test
+	void failsRunWhenPublishedChunkIsNotAcknowledged() {
+		when(kafkaTemplate.send(eq("training-tasks"), anyString(), any(byte[].class)))
+				.thenReturn(CompletableFuture.completedFuture(null))
+				.thenReturn(CompletableFuture.failedFuture(new KafkaException("Record too large")));
+
+		String trainingId = plannedService().startTraining("s3://bucket/data.csv", null);
+
+		verify(chunkSupervisor, timeout(5_000)).failRun(eq(trainingId), startsWith("Failed to publish chunk 1"));
+	}
+
+}
@@ -4,14 +4,17 @@ import com.example.worker_service.util.CustomDataSetIterator;
 import org.nd4j.linalg.dataset.DataSet;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import software.amazon.awssdk.services.s3.S3Client;
 
 @SpringBootApplication
 public class WorkerServiceApplication {
 	public static void main(String[] args) {
-		SpringApplication.run(WorkerServiceApplication.class, args);
+		ConfigurableApplicationContext context = SpringApplication.run(WorkerServiceApplication.class, args);
 
 		try {
 			CustomDataSetIterator iterator = new CustomDataSetIterator(
+					context.getBean(S3Client.class),
 					"s3://aadi-dataset-bucket-2025/test.csv",
 					32
 			);
@@ -0,0 +1,51 @@
+package com.example.worker_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+
+import java.net.URI;
+import java.time.Duration;
+
+@Configuration
+public class AwsConfig {
+
+    @Value("${aws.region:ap-south-1}")
+    private String region;
+
+    @Value("${aws.s3.max-connections:64}")
+    private int maxConnections; // Covers every training slot plus checkpoint uploads
+
+    @Value("${aws.s3.connection-max-idle-ms:60000}")
+    private long connectionMaxIdleMs;
+
+    @Value("${aws.s3.endpoint:}")
+    private String endpoint; // Blank uses AWS, otherwise an S3-compatible store such as a local stand-in
+
+    @Value("${aws.s3.socket-timeout-ms:60000}")
+    private long socketTimeoutMs;
+
+    /**
+     * One client for the whole worker, so chunks reuse pooled, already handshaken connections
+     * and the credential chain is resolved once.
+     */
+    @Bean(destroyMethod = "close")
+    public S3Client s3Client() {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionMaxIdleTime(Duration.ofMillis(connectionMaxIdleMs))
+                        .socketTimeout(Duration.ofMillis(socketTimeoutMs))
+                        .tcpKeepAlive(true)
+                        .useIdleConnectionReaper(true));
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint)).forcePathStyle(true);
+        }
+        return builder.build();
+    }
+}
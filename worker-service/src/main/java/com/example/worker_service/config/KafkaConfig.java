@@ -0,0 +1,95 @@
+package com.example.worker_service.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Map;
+
+@Configuration
+@EnableScheduling
+public class KafkaConfig {
+
+    @Value("${worker.retry.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${worker.retry.initial-interval-ms:1000}")
+    private long initialIntervalMs;
+
+    @Value("${worker.retry.max-interval-ms:30000}")
+    private long maxIntervalMs;
+
+    @Value("${worker.kafka.binary.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${worker.kafka.binary.linger-ms:5}")
+    private int lingerMs;
+
+    @Value("${worker.kafka.binary.batch-size:262144}")
+    private int batchSize;
+
+    @Value("${worker.kafka.max-message-bytes:16777216}")
+    private int maxMessageBytes; // A parameter update carries every weight of the network
+
+    /**
+     * Small JSON control messages (progress events), sent as soon as possible.
+     */
+    @Bean
+    public ProducerFactory<String, String> producerFactory(KafkaProperties properties) {
+        return new DefaultKafkaProducerFactory<>(properties.buildProducerProperties(null),
+                new StringSerializer(), new StringSerializer());
+    }
+
+    @Bean
+    public KafkaTemplate<String, String> kafkaTemplate(ProducerFactory<String, String> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    /**
+     * Binary parameter updates and dead-lettered tasks, see MessageCodec. Compressed and
+     * batched, updates from concurrent training slots share requests to the broker.
+     */
+    @Bean
+    public ProducerFactory<String, byte[]> binaryProducerFactory(KafkaProperties properties) {
+        Map<String, Object> config = properties.buildProducerProperties(null);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        config.put(ProducerConfig.MAX_REQUEST_SIZE_CONFIG, maxMessageBytes);
+        return new DefaultKafkaProducerFactory<>(config, new StringSerializer(), new ByteArraySerializer());
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> binaryKafkaTemplate(ProducerFactory<String, byte[]> binaryProducerFactory) {
+        return new KafkaTemplate<>(binaryProducerFactory);
+    }
+
+    /**
+     * Retries a failed chunk in place with exponential backoff, then hands it to
+     * training-tasks.DLT so one poison chunk cannot block its partition. Every topic a worker
+     * consumes is binary, so records are dead-lettered through the binary template.
+     */
+    @Bean
+    public DefaultErrorHandler kafkaErrorHandler(KafkaTemplate<String, byte[]> binaryKafkaTemplate) {
+        // No fixed partition, so the DLT does not need as many partitions as training-tasks
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(binaryKafkaTemplate,
+                (record, exception) -> new TopicPartition(record.topic() + ".DLT", -1));
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(maxRetries);
+        backOff.setInitialInterval(initialIntervalMs);
+        backOff.setMultiplier(2.0);
+        backOff.setMaxInterval(maxIntervalMs);
+        return new DefaultErrorHandler(recoverer, backOff);
+    }
+}
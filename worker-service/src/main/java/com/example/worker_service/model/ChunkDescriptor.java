@@ -0,0 +1,114 @@
+package com.example.worker_service.model;
+
+/**
+ * Work item received from the training-tasks topic: a newline-aligned byte range
+ * of the original dataset, read with a ranged GetObject.
+ */
+public class ChunkDescriptor {
+    private String trainingId;
+    private String bucket;
+    private String key;
+    private String etag;        // Object version the ranges were planned against, null on older tasks
+    private long startByte;     // Inclusive, always the first byte of a row
+    private long endByte;       // Exclusive, always just past a newline (or the end of the object)
+    private String header;      // CSV header row of the source dataset
+    private int chunkIndex;
+    private int totalChunks;
+    private ModelSpec model;    // Network and hyperparameters, null on tasks planned before model specs
+
+    // Default constructor for Jackson (JSON deserialization)
+    public ChunkDescriptor() {}
+
+    public ChunkDescriptor(String trainingId, String bucket, String key, long startByte, long endByte,
+                           String header, int chunkIndex, int totalChunks) {
+        this.trainingId = trainingId;
+        this.bucket = bucket;
+        this.key = key;
+        this.startByte = startByte;
+        this.endByte = endByte;
+        this.header = header;
+        this.chunkIndex = chunkIndex;
+        this.totalChunks = totalChunks;
+    }
+
+    // Getters and Setters
+    public String getTrainingId() {
+        return trainingId;
+    }
+
+    public void setTrainingId(String trainingId) {
+        this.trainingId = trainingId;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(String bucket) {
+        this.bucket = bucket;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public long getStartByte() {
+        return startByte;
+    }
+
+    public void setStartByte(long startByte) {
+        this.startByte = startByte;
+    }
+
+    public long getEndByte() {
+        return endByte;
+    }
+
+    public void setEndByte(long endByte) {
+        this.endByte = endByte;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    public void setHeader(String header) {
+        this.header = header;
+    }
+
+    public int getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public void setChunkIndex(int chunkIndex) {
+        this.chunkIndex = chunkIndex;
+    }
+
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public void setTotalChunks(int totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+
+    public ModelSpec getModel() {
+        return model;
+    }
+
+    public void setModel(ModelSpec model) {
+        this.model = model;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.worker_service.model;
+
+/**
+ * One hidden dense layer of a {@link ModelSpec}.
+ */
+public class LayerSpec {
+    private int width;
+    private String activation = "RELU"; // Name of an ND4J Activation
+
+    // Default constructor for Jackson (JSON deserialization)
+    public LayerSpec() {}
+
+    public LayerSpec(int width, String activation) {
+        this.width = width;
+        this.activation = activation;
+    }
+
+    // Getters and Setters
+    public int getWidth() {
+        return width;
+    }
+
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    public String getActivation() {
+        return activation;
+    }
+
+    public void setActivation(String activation) {
+        this.activation = activation;
+    }
+}
@@ -0,0 +1,476 @@
+package com.example.worker_service.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary messages of the training-tasks, training-results and training-models topics, laid out
+ * like the GridFS model blob: little-endian, a magic and format version first, strings as a
+ * UTF-8 byte count (-1 for null) and bytes, parameters as name, element count and float32
+ * values. A reader rejects a magic or a version newer than it knows instead of misreading the
+ * rest, so a new field means a new version; older versions stay readable. Kept in step with
+ * the master's copy of this class.
+ */
+public final class MessageCodec {
+
+    /**
+     * Encodings of a parameter update, their position is the id on the wire. FLOAT32 is exact,
+     * FP16 and BF16 round every value to 16 bits, TOPK and THRESHOLD send a sparse delta.
+     */
+    public static final List<String> UPDATE_ENCODINGS = List.of("FLOAT32", "FP16", "BF16", "TOPK", "THRESHOLD");
+
+    private static final int TASK_MAGIC = 0x5441534B;   // "TASK"
+    private static final int UPDATE_MAGIC = 0x55504454; // "UPDT"
+    private static final int MODEL_MAGIC = 0x4D4F444C;  // "MODL"
+    private static final int TASK_VERSION = 2;          // 2 added the update encoding to the model spec
+    private static final int UPDATE_VERSION = 2;        // 2 added the encoding and the base version of a delta
+    private static final int MODEL_VERSION = 1;
+    private static final int FP16 = 1;
+    private static final int BF16 = 2;
+
+    private MessageCodec() {
+    }
+
+    public static byte[] encodeTask(ChunkDescriptor chunk) {
+        Writer out = new Writer(512);
+        out.putInt(TASK_MAGIC).putInt(TASK_VERSION);
+        out.putString(chunk.getTrainingId()).putString(chunk.getBucket()).putString(chunk.getKey())
+                .putString(chunk.getEtag());
+        out.putLong(chunk.getStartByte()).putLong(chunk.getEndByte());
+        out.putString(chunk.getHeader());
+        out.putInt(chunk.getChunkIndex()).putInt(chunk.getTotalChunks());
+        ModelSpec spec = chunk.getModel();
+        out.putInt(spec != null ? 1 : 0);
+        if (spec != null) {
+            out.putInt(spec.getLayers().size());
+            for (LayerSpec layer : spec.getLayers()) {
+                out.putInt(layer.getWidth()).putString(layer.getActivation());
+            }
+            out.putString(spec.getOutputActivation()).putString(spec.getLossFunction()).putString(spec.getUpdater());
+            out.putDouble(spec.getLearningRate()).putLong(spec.getSeed());
+            out.putInt(spec.getEpochs()).putInt(spec.getBatchSize());
+            out.putString(spec.getLabelColumn()).putStrings(spec.getFeatureColumns());
+            out.putInt(spec.getNumClasses() != null ? spec.getNumClasses() : -1); // At least 2 when set
+            out.putStrings(spec.getLabelNames());
+            out.putString(spec.getUpdateEncoding());
+            out.putDouble(spec.getUpdateTopK() != null ? spec.getUpdateTopK() : Double.NaN); // NaN when not set
+            out.putDouble(spec.getUpdateThreshold() != null ? spec.getUpdateThreshold() : Double.NaN);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws IOException if the message is not a task of a known version, or is cut short
+     */
+    public static ChunkDescriptor decodeTask(byte[] message) throws IOException {
+        try {
+            Reader in = new Reader(message, TASK_MAGIC, TASK_VERSION);
+            ChunkDescriptor chunk = new ChunkDescriptor();
+            chunk.setTrainingId(in.getString());
+            chunk.setBucket(in.getString());
+            chunk.setKey(in.getString());
+            chunk.setEtag(in.getString());
+            chunk.setStartByte(in.buffer.getLong());
+            chunk.setEndByte(in.buffer.getLong());
+            chunk.setHeader(in.getString());
+            chunk.setChunkIndex(in.buffer.getInt());
+            chunk.setTotalChunks(in.buffer.getInt());
+            if (in.buffer.getInt() == 1) {
+                ModelSpec spec = new ModelSpec();
+                int layers = in.buffer.getInt();
+                List<LayerSpec> layerSpecs = new ArrayList<>(layers);
+                for (int i = 0; i < layers; i++) {
+                    int width = in.buffer.getInt();
+                    layerSpecs.add(new LayerSpec(width, in.getString()));
+                }
+                spec.setLayers(layerSpecs);
+                spec.setOutputActivation(in.getString());
+                spec.setLossFunction(in.getString());
+                spec.setUpdater(in.getString());
+                spec.setLearningRate(in.buffer.getDouble());
+                spec.setSeed(in.buffer.getLong());
+                spec.setEpochs(in.buffer.getInt());
+                spec.setBatchSize(in.buffer.getInt());
+                spec.setLabelColumn(in.getString());
+                spec.setFeatureColumns(in.getStrings());
+                int numClasses = in.buffer.getInt();
+                spec.setNumClasses(numClasses >= 0 ? numClasses : null);
+                spec.setLabelNames(in.getStrings());
+                if (in.version >= 2) {
+                    spec.setUpdateEncoding(in.getString());
+                    double topK = in.buffer.getDouble();
+                    spec.setUpdateTopK(Double.isNaN(topK) ? null : topK);
+                    double threshold = in.buffer.getDouble();
+                    spec.setUpdateThreshold(Double.isNaN(threshold) ? null : threshold);
+                }
+                chunk.setModel(spec);
+            }
+            return chunk;
+        } catch (RuntimeException e) {
+            throw new IOException("Truncated or corrupt task message", e);
+        }
+    }
+
+    /**
+     * Writes the params as float32, as 16-bit values for FP16 and BF16, or as index and float32
+     * value of every non-zero entry when the update is a delta.
+     *
+     * @throws IllegalArgumentException if the encoding is not one of {@link #UPDATE_ENCODINGS}
+     */
+    public static byte[] encodeUpdate(ParameterUpdate update) {
+        int encoding = UPDATE_ENCODINGS.indexOf(update.getEncoding());
+        if (encoding < 0) {
+            throw new IllegalArgumentException("Unknown update encoding: " + update.getEncoding());
+        }
+        boolean delta = update.getBaseVersion() >= 0;
+        boolean half = encoding == FP16 || encoding == BF16;
+        Writer out = new Writer(36 + utf8Length(update.getTrainingId())
+                + (delta ? 4096 : paramsSize(update.getParams(), half ? Short.BYTES : Float.BYTES))); // Exact unless sparse
+        out.putInt(UPDATE_MAGIC).putInt(UPDATE_VERSION);
+        out.putString(update.getTrainingId());
+        out.putInt(update.getChunkIndex()).putInt(update.getTotalChunks()).putLong(update.getSampleCount());
+        out.putInt(encoding).putInt(update.getBaseVersion());
+        if (delta) {
+            out.putSparseParams(update.getParams());
+        } else if (half) {
+            out.putHalfParams(update.getParams(), encoding == BF16);
+        } else {
+            out.putParams(update.getParams());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the update with its params decoded to float32, still a delta if it has a base version
+     */
+    public static ParameterUpdate decodeUpdate(byte[] message) throws IOException {
+        try {
+            Reader in = new Reader(message, UPDATE_MAGIC, UPDATE_VERSION);
+            String trainingId = in.getString();
+            int chunkIndex = in.buffer.getInt();
+            int totalChunks = in.buffer.getInt();
+            long sampleCount = in.buffer.getLong();
+            if (in.version < 2) {
+                return new ParameterUpdate(trainingId, chunkIndex, totalChunks, sampleCount, in.getParams());
+            }
+            int encoding = in.buffer.getInt();
+            int baseVersion = in.buffer.getInt();
+            Map<String, float[]> params;
+            if (baseVersion >= 0) {
+                params = in.getSparseParams();
+            } else if (encoding == FP16 || encoding == BF16) {
+                params = in.getHalfParams(encoding == BF16);
+            } else {
+                params = in.getParams();
+            }
+            ParameterUpdate update = new ParameterUpdate(trainingId, chunkIndex, totalChunks, sampleCount, params);
+            update.setEncoding(UPDATE_ENCODINGS.get(encoding));
+            update.setBaseVersion(baseVersion);
+            return update;
+        } catch (RuntimeException e) {
+            throw new IOException("Truncated or corrupt parameter update", e);
+        }
+    }
+
+    public static byte[] encodeModel(MergedModel model) {
+        Writer out = new Writer(28 + utf8Length(model.getTrainingId()) + paramsSize(model.getParams(), Float.BYTES));
+        out.putInt(MODEL_MAGIC).putInt(MODEL_VERSION);
+        out.putString(model.getTrainingId());
+        out.putInt(model.getVersion()).putInt(model.getTotalChunks()).putLong(model.getSampleCount());
+        out.putParams(model.getParams());
+        return out.toByteArray();
+    }
+
+    public static MergedModel decodeModel(byte[] message) throws IOException {
+        try {
+            Reader in = new Reader(message, MODEL_MAGIC, MODEL_VERSION);
+            String trainingId = in.getString();
+            int version = in.buffer.getInt();
+            int totalChunks = in.buffer.getInt();
+            long sampleCount = in.buffer.getLong();
+            return new MergedModel(trainingId, version, totalChunks, sampleCount, in.getParams());
+        } catch (RuntimeException e) {
+            throw new IOException("Truncated or corrupt merged model", e);
+        }
+    }
+
+    private static int paramsSize(Map<String, float[]> params, int bytesPerValue) {
+        int size = 4;
+        for (Map.Entry<String, float[]> entry : params.entrySet()) {
+            size += 4 + utf8Length(entry.getKey()) + 4 + entry.getValue().length * bytesPerValue;
+        }
+        return size;
+    }
+
+    /**
+     * IEEE 754 half precision, rounded to nearest even. Out of range values become infinity.
+     */
+    public static short toFloat16(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int floatExponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+        if (floatExponent == 0xFF) {
+            return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0)); // Infinity or NaN
+        }
+        int exponent = floatExponent - 127 + 15;
+        if (exponent >= 0x1F) {
+            return (short) (sign | 0x7C00);
+        }
+        int shift = 13;
+        int half;
+        if (exponent <= 0) {
+            if (exponent < -10) {
+                return (short) sign; // Below half the smallest subnormal
+            }
+            mantissa |= 0x800000; // Subnormal, the implicit leading bit becomes explicit
+            shift = 14 - exponent;
+            half = mantissa >> shift;
+        } else {
+            half = (exponent << 10) | (mantissa >> shift);
+        }
+        int rest = mantissa & ((1 << shift) - 1);
+        int halfway = 1 << (shift - 1);
+        if (rest > halfway || (rest == halfway && (half & 1) != 0)) {
+            half++; // A carry into the exponent is still the correctly rounded value
+        }
+        return (short) (sign | half);
+    }
+
+    public static float fromFloat16(short value) {
+        int bits = value & 0xFFFF;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1F;
+        int mantissa = bits & 0x3FF;
+        if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        }
+        if (exponent == 0) {
+            float subnormal = mantissa * 0x1p-24f;
+            return sign != 0 ? -subnormal : subnormal;
+        }
+        return Float.intBitsToFloat(sign | ((exponent + 127 - 15) << 23) | (mantissa << 13));
+    }
+
+    /**
+     * The upper half of a float32, rounded to nearest even. Same range as float32, 8 bits of precision.
+     */
+    public static short toBfloat16(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        if (Float.isNaN(value)) {
+            return (short) ((bits >>> 16) | 0x40); // Rounding could turn a NaN into infinity
+        }
+        return (short) ((bits + 0x7FFF + ((bits >>> 16) & 1)) >>> 16);
+    }
+
+    public static float fromBfloat16(short value) {
+        return Float.intBitsToFloat((value & 0xFFFF) << 16);
+    }
+
+    private static int utf8Length(String value) {
+        return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static class Writer {
+        private ByteBuffer buffer;
+
+        Writer(int capacity) {
+            buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                buffer.flip();
+                buffer = grown.put(buffer);
+            }
+        }
+
+        Writer putInt(int value) {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+            return this;
+        }
+
+        Writer putLong(long value) {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+            return this;
+        }
+
+        Writer putDouble(double value) {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+            return this;
+        }
+
+        Writer putShort(short value) {
+            ensure(Short.BYTES);
+            buffer.putShort(value);
+            return this;
+        }
+
+        Writer putString(String value) {
+            if (value == null) {
+                return putInt(-1);
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+            return this;
+        }
+
+        Writer putStrings(List<String> values) {
+            if (values == null) {
+                return putInt(-1);
+            }
+            putInt(values.size());
+            values.forEach(this::putString);
+            return this;
+        }
+
+        void putParams(Map<String, float[]> params) {
+            putInt(params.size());
+            for (Map.Entry<String, float[]> entry : params.entrySet()) {
+                putString(entry.getKey());
+                float[] values = entry.getValue();
+                putInt(values.length);
+                ensure(values.length * Float.BYTES);
+                buffer.asFloatBuffer().put(values); // Bulk copy, the float view shares the byte order
+                buffer.position(buffer.position() + values.length * Float.BYTES);
+            }
+        }
+
+        void putHalfParams(Map<String, float[]> params, boolean bfloat16) {
+            putInt(params.size());
+            for (Map.Entry<String, float[]> entry : params.entrySet()) {
+                putString(entry.getKey());
+                float[] values = entry.getValue();
+                putInt(values.length);
+                ensure(values.length * Short.BYTES);
+                for (float value : values) {
+                    buffer.putShort(bfloat16 ? toBfloat16(value) : toFloat16(value));
+                }
+            }
+        }
+
+        void putSparseParams(Map<String, float[]> params) {
+            putInt(params.size());
+            for (Map.Entry<String, float[]> entry : params.entrySet()) {
+                putString(entry.getKey());
+                float[] values = entry.getValue();
+                int nonZero = 0;
+                for (float value : values) {
+                    if (value != 0f) {
+                        nonZero++;
+                    }
+                }
+                putInt(values.length).putInt(nonZero);
+                ensure(nonZero * (Integer.BYTES + Float.BYTES));
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] != 0f) {
+                        buffer.putInt(i).putFloat(values[i]);
+                    }
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            if (buffer.position() == buffer.capacity()) {
+                return buffer.array(); // Sized exactly, no copy of a large parameter payload
+            }
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
+
+    private static class Reader {
+        private final ByteBuffer buffer;
+        private final int version;
+
+        Reader(byte[] message, int magic, int latestVersion) throws IOException {
+            buffer = ByteBuffer.wrap(message).order(ByteOrder.LITTLE_ENDIAN);
+            if (message.length < 8 || buffer.getInt() != magic) {
+                throw new IOException("Not a message of the expected type");
+            }
+            version = buffer.getInt();
+            if (version < 1 || version > latestVersion) {
+                throw new IOException("Unsupported message format version " + version);
+            }
+        }
+
+        String getString() {
+            int length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+
+        List<String> getStrings() {
+            int count = buffer.getInt();
+            if (count < 0) {
+                return null;
+            }
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(getString());
+            }
+            return values;
+        }
+
+        Map<String, float[]> getParams() {
+            int count = buffer.getInt();
+            Map<String, float[]> params = new LinkedHashMap<>();
+            for (int p = 0; p < count; p++) {
+                String name = getString();
+                float[] values = new float[buffer.getInt()];
+                buffer.asFloatBuffer().get(values);
+                buffer.position(buffer.position() + values.length * Float.BYTES);
+                params.put(name, values);
+            }
+            return params;
+        }
+
+        Map<String, float[]> getHalfParams(boolean bfloat16) {
+            int count = buffer.getInt();
+            Map<String, float[]> params = new LinkedHashMap<>();
+            for (int p = 0; p < count; p++) {
+                String name = getString();
+                float[] values = new float[buffer.getInt()];
+                for (int i = 0; i < values.length; i++) {
+                    short value = buffer.getShort();
+                    values[i] = bfloat16 ? fromBfloat16(value) : fromFloat16(value);
+                }
+                params.put(name, values);
+            }
+            return params;
+        }
+
+        Map<String, float[]> getSparseParams() {
+            int count = buffer.getInt();
+            Map<String, float[]> params = new LinkedHashMap<>();
+            for (int p = 0; p < count; p++) {
+                String name = getString();
+                float[] values = new float[buffer.getInt()]; // Entries left out did not change
+                int nonZero = buffer.getInt();
+                for (int i = 0; i < nonZero; i++) {
+                    int index = buffer.getInt();
+                    values[index] = buffer.getFloat();
+                }
+                params.put(name, values);
+            }
+            return params;
+        }
+    }
+}
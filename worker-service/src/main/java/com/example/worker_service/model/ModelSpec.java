@@ -0,0 +1,151 @@
+package com.example.worker_service.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Network architecture, hyperparameters and CSV column schema of a training run. Carried on
+ * every chunk descriptor so all workers build the same network. Fields left out of a request
+ * keep the defaults below, which match the original fixed network.
+ */
+public class ModelSpec {
+    private List<LayerSpec> layers = new ArrayList<>(List.of(new LayerSpec(100, "RELU")));
+    private String outputActivation = "SOFTMAX";
+    private String lossFunction = "MCXENT";    // Name of a DL4J LossFunctions.LossFunction
+    private String updater = "ADAM";           // ADAM, SGD, NESTEROVS, RMSPROP or ADAGRAD
+    private double learningRate = 0.001;
+    private long seed = 123;
+    private int epochs = 1;                    // Passes over each chunk
+    private int batchSize = 32;
+    private String labelColumn;                // Header name of the class label, null leaves it to the worker
+    private List<String> featureColumns;       // Header names of the features, null uses every non-label column
+    private Integer numClasses;                // Null leaves it to the worker
+    private List<String> labelNames;
+    private String updateEncoding;             // FLOAT32, FP16, BF16, TOPK or THRESHOLD, null leaves it to the worker
+    private Double updateTopK;                 // Share of entries a TOPK update sends, null leaves it to the worker
+    private Double updateThreshold;            // Smallest change a THRESHOLD update sends, null leaves it to the worker
+
+    // Default constructor for Jackson (JSON deserialization)
+    public ModelSpec() {}
+
+    // Getters and Setters
+    public List<LayerSpec> getLayers() {
+        return layers;
+    }
+
+    public void setLayers(List<LayerSpec> layers) {
+        this.layers = layers;
+    }
+
+    public String getOutputActivation() {
+        return outputActivation;
+    }
+
+    public void setOutputActivation(String outputActivation) {
+        this.outputActivation = outputActivation;
+    }
+
+    public String getLossFunction() {
+        return lossFunction;
+    }
+
+    public void setLossFunction(String lossFunction) {
+        this.lossFunction = lossFunction;
+    }
+
+    public String getUpdater() {
+        return updater;
+    }
+
+    public void setUpdater(String updater) {
+        this.updater = updater;
+    }
+
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    public void setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getEpochs() {
+        return epochs;
+    }
+
+    public void setEpochs(int epochs) {
+        this.epochs = epochs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public String getLabelColumn() {
+        return labelColumn;
+    }
+
+    public void setLabelColumn(String labelColumn) {
+        this.labelColumn = labelColumn;
+    }
+
+    public List<String> getFeatureColumns() {
+        return featureColumns;
+    }
+
+    public void setFeatureColumns(List<String> featureColumns) {
+        this.featureColumns = featureColumns;
+    }
+
+    public Integer getNumClasses() {
+        return numClasses;
+    }
+
+    public void setNumClasses(Integer numClasses) {
+        this.numClasses = numClasses;
+    }
+
+    public List<String> getLabelNames() {
+        return labelNames;
+    }
+
+    public void setLabelNames(List<String> labelNames) {
+        this.labelNames = labelNames;
+    }
+
+    public String getUpdateEncoding() {
+        return updateEncoding;
+    }
+
+    public void setUpdateEncoding(String updateEncoding) {
+        this.updateEncoding = updateEncoding;
+    }
+
+    public Double getUpdateTopK() {
+        return updateTopK;
+    }
+
+    public void setUpdateTopK(Double updateTopK) {
+        this.updateTopK = updateTopK;
+    }
+
+    public Double getUpdateThreshold() {
+        return updateThreshold;
+    }
+
+    public void setUpdateThreshold(Double updateThreshold) {
+        this.updateThreshold = updateThreshold;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.worker_service.model;
+
+import java.util.Map;
+
+/**
+ * Parameters a worker trained on one chunk, sent to the master's parameter server.
+ */
+public class ParameterUpdate {
+    private String trainingId;
+    private int chunkIndex;
+    private int totalChunks;
+    private long sampleCount; // Examples trained on, the weight of this update in the average
+    private Map<String, float[]> params; // Parameter name (e.g. "0_W") -> values in row-major order
+    private String encoding = "FLOAT32"; // One of MessageCodec.UPDATE_ENCODINGS
+    private int baseVersion = -1;        // Merged model version the params are a change against, -1 when they are complete
+
+    public ParameterUpdate() {
+    }
+
+    public ParameterUpdate(String trainingId, int chunkIndex, int totalChunks, long sampleCount, Map<String, float[]> params) {
+        this.trainingId = trainingId;
+        this.chunkIndex = chunkIndex;
+        this.totalChunks = totalChunks;
+        this.sampleCount = sampleCount;
+        this.params = params;
+    }
+
+    public String getTrainingId() {
+        return trainingId;
+    }
+
+    public void setTrainingId(String trainingId) {
+        this.trainingId = trainingId;
+    }
+
+    public int getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public void setChunkIndex(int chunkIndex) {
+        this.chunkIndex = chunkIndex;
+    }
+
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public void setTotalChunks(int totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(long sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public Map<String, float[]> getParams() {
+        return params;
+    }
+
+    public void setParams(Map<String, float[]> params) {
+        this.params = params;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+    }
+
+    public int getBaseVersion() {
+        return baseVersion;
+    }
+
+    public void setBaseVersion(int baseVersion) {
+        this.baseVersion = baseVersion;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.worker_service.model;
+
+/**
+ * A status transition or finished chunk of a training run, published on the progress topic.
+ */
+public class ProgressEvent {
+    private String trainingId;
+    private String status;
+    private int progress;
+    private int totalChunks;
+    private int completedChunks;
+    private int chunkIndex; // Chunk that just finished, -1 for run-level transitions
+    private long timestamp;
+
+    public ProgressEvent() {
+    }
+
+    public ProgressEvent(String trainingId, String status, int progress, int totalChunks, int completedChunks, int chunkIndex) {
+        this.trainingId = trainingId;
+        this.status = status;
+        this.progress = progress;
+        this.totalChunks = totalChunks;
+        this.completedChunks = completedChunks;
+        this.chunkIndex = chunkIndex;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public String getTrainingId() {
+        return trainingId;
+    }
+
+    public void setTrainingId(String trainingId) {
+        this.trainingId = trainingId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getProgress() {
+        return progress;
+    }
+
+    public void setProgress(int progress) {
+        this.progress = progress;
+    }
+
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public void setTotalChunks(int totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+
+    public int getCompletedChunks() {
+        return completedChunks;
+    }
+
+    public void setCompletedChunks(int completedChunks) {
+        this.completedChunks = completedChunks;
+    }
+
+    public int getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public void setChunkIndex(int chunkIndex) {
+        this.chunkIndex = chunkIndex;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+}
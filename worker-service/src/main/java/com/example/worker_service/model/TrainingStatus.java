@@ -3,15 +3,14 @@ package com.example.worker_service.model;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.util.Map;
-
 @Document(collection = "training_status")
 public class TrainingStatus {
     @Id
     private String id; // trainingId
     private String status; // e.g., "IN_PROGRESS", "COMPLETED"
     private int progress; // Percentage (0-100)
-    private Map<String, double[]> weights; // Layer name -> weight array
+    private int totalChunks; // Number of chunks planned by the master
+    private int completedChunks;
 
     // Constructors
     public TrainingStatus() {}
@@ -20,14 +19,6 @@ public class TrainingStatus {
         this.id = id;
         this.status = status;
         this.progress = progress;
-        this.weights = null; // Default to null if weights not provided
-    }
-
-    public TrainingStatus(String id, String status, int progress, Map<String, double[]> weights) {
-        this.id = id;
-        this.status = status;
-        this.progress = progress;
-        this.weights = weights;
     }
 
     // Getters and Setters
@@ -55,11 +46,19 @@ public class TrainingStatus {
         this.progress = progress;
     }
 
-    public Map<String, double[]> getWeights() {
-        return weights;
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public void setTotalChunks(int totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+
+    public int getCompletedChunks() {
+        return completedChunks;
     }
 
-    public void setWeights(Map<String, double[]> weights) {
-        this.weights = weights;
+    public void setCompletedChunks(int completedChunks) {
+        this.completedChunks = completedChunks;
     }
 }
\ No newline at end of file
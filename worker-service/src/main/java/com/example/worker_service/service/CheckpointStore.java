@@ -0,0 +1,189 @@
+package com.example.worker_service.service;
+
+import com.example.worker_service.model.ChunkDescriptor;
+import jakarta.annotation.PostConstruct;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.util.ModelSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Mid-chunk training checkpoints. A checkpoint is a small header (format, epoch and minibatch
+ * cursor) followed by the DL4J model zip with parameters and updater state, so Adam's moments
+ * survive a resume. Files are written to a local directory and, when a bucket is configured,
+ * mirrored to S3 so a chunk redelivered to another worker can resume too.
+ */
+@Component
+public class CheckpointStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointStore.class);
+    private static final int MAGIC = 0x434B5054; // "CKPT"
+    private static final int FORMAT_VERSION = 1;
+
+    @Value("${worker.checkpoint.dir:${java.io.tmpdir}/checkpoints}")
+    private String dir;
+
+    @Value("${worker.checkpoint.s3-bucket:}")
+    private String s3Bucket; // Blank keeps checkpoints local to this host
+
+    @Value("${worker.checkpoint.s3-prefix:checkpoints}")
+    private String s3Prefix;
+
+    @Value("${worker.checkpoint.max-age-ms:86400000}")
+    private long maxAgeMs; // Left behind by runs that failed, removed on startup
+
+    @Autowired
+    private S3Client s3Client;
+
+    /**
+     * Where training of a chunk stopped: the epoch and the minibatches already trained in it.
+     */
+    public static class Checkpoint {
+        private final MultiLayerNetwork model;
+        private final int epoch;
+        private final int batch;
+
+        Checkpoint(MultiLayerNetwork model, int epoch, int batch) {
+            this.model = model;
+            this.epoch = epoch;
+            this.batch = batch;
+        }
+
+        public MultiLayerNetwork getModel() {
+            return model;
+        }
+
+        public int getEpoch() {
+            return epoch;
+        }
+
+        public int getBatch() {
+            return batch;
+        }
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        Path root = Path.of(dir);
+        Files.createDirectories(root);
+        Instant cutoff = Instant.now().minusMillis(maxAgeMs);
+        try (Stream<Path> files = Files.list(root)) {
+            files.filter(file -> isOlderThan(file, cutoff)).forEach(this::deleteQuietly);
+        }
+    }
+
+    public void save(ChunkDescriptor chunk, MultiLayerNetwork model, int epoch, int batch) throws IOException {
+        Path file = localFile(chunk);
+        // One temp file per save, a speculative duplicate of the chunk on this host writes its own
+        Path partial = Files.createTempFile(file.getParent(), file.getFileName() + ".", ".partial");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partial)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(epoch);
+                out.writeInt(batch);
+                ModelSerializer.writeModel(model, (OutputStream) out, true); // true keeps the updater state
+            }
+            // A crash mid-write must never leave a truncated checkpoint behind
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partial); // Left over only if the write or the move failed
+        }
+        if (!s3Bucket.isBlank()) {
+            s3Client.putObject(PutObjectRequest.builder().bucket(s3Bucket).key(s3Key(chunk)).build(),
+                    RequestBody.fromFile(file));
+        }
+        logger.debug("Checkpointed chunk {} of trainingId: {} at epoch {}, batch {}", chunk.getChunkIndex(),
+                chunk.getTrainingId(), epoch, batch);
+    }
+
+    /**
+     * @return the latest checkpoint of the chunk, or null if none exists or it cannot be read
+     */
+    public Checkpoint load(ChunkDescriptor chunk) {
+        Path file = localFile(chunk);
+        try {
+            if (!Files.exists(file) && !s3Bucket.isBlank()) {
+                try (InputStream remote = s3Client.getObject(GetObjectRequest.builder()
+                        .bucket(s3Bucket).key(s3Key(chunk)).build())) {
+                    Files.copy(remote, file, StandardCopyOption.REPLACE_EXISTING);
+                } catch (NoSuchKeyException e) {
+                    return null;
+                }
+            }
+            if (!Files.exists(file)) {
+                return null;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    logger.warn("Ignoring checkpoint in unknown format: {}", file);
+                    return null;
+                }
+                int epoch = in.readInt();
+                int batch = in.readInt();
+                return new Checkpoint(ModelSerializer.restoreMultiLayerNetwork(in, true), epoch, batch);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable checkpoint for chunk {} of trainingId: {}", chunk.getChunkIndex(),
+                    chunk.getTrainingId(), e);
+            return null;
+        }
+    }
+
+    public void delete(ChunkDescriptor chunk) {
+        deleteQuietly(localFile(chunk));
+        if (!s3Bucket.isBlank()) {
+            try {
+                s3Client.deleteObject(DeleteObjectRequest.builder().bucket(s3Bucket).key(s3Key(chunk)).build());
+            } catch (RuntimeException e) {
+                logger.warn("Failed to delete checkpoint {} from S3", s3Key(chunk), e);
+            }
+        }
+    }
+
+    private Path localFile(ChunkDescriptor chunk) {
+        return Path.of(dir, chunk.getTrainingId() + "-" + chunk.getChunkIndex() + ".ckpt");
+    }
+
+    private String s3Key(ChunkDescriptor chunk) {
+        return s3Prefix + "/" + chunk.getTrainingId() + "/chunk-" + chunk.getChunkIndex() + ".ckpt";
+    }
+
+    private static boolean isOlderThan(Path file, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete checkpoint {}", file, e);
+        }
+    }
+}
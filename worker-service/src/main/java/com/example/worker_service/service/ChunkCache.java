@@ -0,0 +1,189 @@
+package com.example.worker_service.service;
+
+import com.example.worker_service.model.ChunkDescriptor;
+import com.example.worker_service.util.CsvSchema;
+import com.example.worker_service.util.CustomDataSetIterator;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Parsed chunks kept on local disk, so sweeps and reruns over the same dataset skip both the
+ * S3 download and CSV parsing. Entries are keyed by object, ETag, byte range and column schema,
+ * so a replaced object or a different schema never hits a stale entry. The directory is capped
+ * in bytes and evicts the least recently used chunk.
+ */
+@Component
+public class ChunkCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkCache.class);
+    private static final String SUFFIX = ".chunk";
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Value("${worker.chunk-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${worker.chunk-cache.dir:${java.io.tmpdir}/chunk-cache}")
+    private String dir;
+
+    @Value("${worker.chunk-cache.max-bytes:10737418240}")
+    private long maxBytes; // 10 GB
+
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true); // File name to size
+    private long totalBytes;
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path root = Path.of(dir);
+        Files.createDirectories(root);
+        // Oldest first, a hit touches the file so the order survives restarts
+        try (Stream<Path> files = Files.list(root)) {
+            List<Path> sorted = files.sorted(Comparator.comparing(ChunkCache::lastModified)).toList();
+            for (Path file : sorted) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SUFFIX)) {
+                    add(name, Files.size(file));
+                } else {
+                    Files.deleteIfExists(file); // Partial write of a crashed worker
+                }
+            }
+        }
+        evict();
+        logger.info("Chunk cache holds {} chunks ({} bytes)", entries.size(), totalBytes);
+    }
+
+    /**
+     * An iterator over the chunk, from the cache when possible, otherwise downloaded, parsed and
+     * cached for next time.
+     */
+    public CustomDataSetIterator open(ChunkDescriptor chunk, CsvSchema schema, int batchSize) throws IOException {
+        if (!enabled || chunk.getEtag() == null) {
+            return new CustomDataSetIterator(s3Client, chunk, schema, batchSize); // Tasks planned before ETags
+        }
+        String name = key(chunk, schema) + SUFFIX;
+        Path file = Path.of(dir, name);
+        if (contains(name)) {
+            try {
+                CustomDataSetIterator cached = CustomDataSetIterator.load(file, schema.getLabelNames(), batchSize);
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                logger.info("Chunk {} of trainingId: {} served from the chunk cache", chunk.getChunkIndex(),
+                        chunk.getTrainingId());
+                return cached;
+            } catch (IOException e) {
+                logger.warn("Dropping unreadable cached chunk {}", file, e);
+                remove(name);
+            }
+        }
+        CustomDataSetIterator iterator = new CustomDataSetIterator(s3Client, chunk, schema, batchSize);
+        try {
+            Path partial = Files.createTempFile(Path.of(dir), "chunk-", ".partial");
+            try {
+                iterator.save(partial);
+                Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+            add(name, Files.size(file));
+            evict();
+        } catch (IOException e) {
+            logger.warn("Failed to cache chunk {} of trainingId: {}, training continues", chunk.getChunkIndex(),
+                    chunk.getTrainingId(), e);
+        }
+        return iterator;
+    }
+
+    public long getTotalBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    static String key(ChunkDescriptor chunk, CsvSchema schema) {
+        String identity = String.join("\n", chunk.getBucket(), chunk.getKey(), chunk.getEtag(),
+                chunk.getStartByte() + "-" + chunk.getEndByte(),
+                Arrays.toString(schema.getFeatureColumns()), schema.getLabelColumn() + "/" + schema.getNumClasses());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(identity.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+
+    private boolean contains(String name) {
+        synchronized (entries) {
+            return entries.get(name) != null; // get() also marks the entry as recently used
+        }
+    }
+
+    private void add(String name, long size) {
+        synchronized (entries) {
+            Long previous = entries.put(name, size);
+            totalBytes += size - (previous != null ? previous : 0);
+        }
+    }
+
+    private void remove(String name) {
+        synchronized (entries) {
+            Long size = entries.remove(name);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+        deleteQuietly(Path.of(dir, name));
+    }
+
+    private void evict() {
+        while (true) {
+            String eldest;
+            synchronized (entries) {
+                if (totalBytes <= maxBytes || entries.size() <= 1) {
+                    return; // The newest chunk is kept even if it alone exceeds the cap
+                }
+                eldest = entries.keySet().iterator().next();
+            }
+            remove(eldest);
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete cached chunk {}", file, e);
+        }
+    }
+}
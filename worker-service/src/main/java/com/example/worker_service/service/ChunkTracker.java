@@ -0,0 +1,145 @@
+package com.example.worker_service.service;
+
+import com.example.worker_service.model.ChunkDescriptor;
+import com.example.worker_service.model.ChunkState;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records this worker's progress on chunks in training_chunks. Claimed chunks get a heartbeat
+ * while they train, the master re-dispatches any chunk whose heartbeat goes stale.
+ */
+@Component
+public class ChunkTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkTracker.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${worker.id:}")
+    private String configuredWorkerId;
+
+    private final Map<String, String> active = new ConcurrentHashMap<>(); // attemptId to chunk id
+
+    public String getWorkerId() {
+        // pid@host unless configured, unique per process
+        return configuredWorkerId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : configuredWorkerId;
+    }
+
+    /**
+     * Marks the chunk ASSIGNED and starts heartbeating a new attempt at it. Attempts are tracked
+     * one by one, so a speculative duplicate never takes over the original's heartbeat.
+     *
+     * @return the attempt, or null if the chunk is already DONE, or FAILED with its run; a
+     *         redelivery that needs no training
+     */
+    public ChunkState.Attempt claim(ChunkDescriptor chunk) {
+        String id = ChunkState.idOf(chunk.getTrainingId(), chunk.getChunkIndex());
+        ChunkState.Attempt attempt = new ChunkState.Attempt(UUID.randomUUID().toString(), getWorkerId(), Instant.now());
+        ChunkState claimed = mongoTemplate.findAndModify(
+                // FAILED is final, a late redelivery must not start the chunk again
+                new Query(Criteria.where("id").is(id).and("state").in("PENDING", "ASSIGNED")),
+                new Update().set("state", "ASSIGNED")
+                        .set("workerId", attempt.getWorkerId())
+                        .set("assignedAt", attempt.getAssignedAt())
+                        .set("heartbeatAt", attempt.getAssignedAt())
+                        .inc("attempts", 1)
+                        .push("running", attempt),
+                FindAndModifyOptions.options().returnNew(true),
+                ChunkState.class);
+        if (claimed == null && mongoTemplate.exists(new Query(Criteria.where("id").is(id)), ChunkState.class)) {
+            return null; // Exists but did not match, so it is DONE or FAILED
+        }
+        // Chunks planned before state tracking have no document and are trained untracked
+        active.put(attempt.getAttemptId(), id);
+        return attempt;
+    }
+
+    @Scheduled(fixedDelayString = "${worker.heartbeat.interval-ms:10000}")
+    public void heartbeat() {
+        if (active.isEmpty()) {
+            return;
+        }
+        List<String> attemptIds = List.copyOf(active.keySet());
+        Instant now = Instant.now();
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("state").is("ASSIGNED").and("running.attemptId").in(attemptIds)),
+                new Update().set("heartbeatAt", now)
+                        .set("running.$[live].heartbeatAt", now)
+                        .filterArray(Criteria.where("live.attemptId").in(attemptIds)),
+                ChunkState.class);
+    }
+
+    /**
+     * True if another attempt of this chunk (a redelivery or a speculative duplicate) already finished it.
+     */
+    public boolean isDone(ChunkDescriptor chunk) {
+        String id = ChunkState.idOf(chunk.getTrainingId(), chunk.getChunkIndex());
+        return mongoTemplate.exists(new Query(Criteria.where("id").is(id).and("state").is("DONE")), ChunkState.class);
+    }
+
+    /**
+     * Marks the chunk DONE unless another attempt got there first, which keeps its finish time.
+     * The chunk is credited to this attempt, its worker and start time.
+     */
+    public void complete(ChunkDescriptor chunk, ChunkState.Attempt attempt) {
+        String id = ChunkState.idOf(chunk.getTrainingId(), chunk.getChunkIndex());
+        active.remove(attempt.getAttemptId());
+        // Only while the attempt is still running, the master drops it when it re-dispatches the chunk
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(id).and("running.attemptId").is(attempt.getAttemptId())),
+                new Update().set("state", "DONE")
+                        .set("workerId", attempt.getWorkerId())
+                        .set("assignedAt", attempt.getAssignedAt())
+                        .set("finishedAt", Instant.now())
+                        .unset("running")
+                        .unset("error"),
+                ChunkState.class);
+    }
+
+    /**
+     * Stops heartbeating an attempt whose result is no longer needed.
+     */
+    public void abandon(ChunkDescriptor chunk, ChunkState.Attempt attempt) {
+        active.remove(attempt.getAttemptId());
+        leave(chunk, attempt, new Update());
+    }
+
+    /**
+     * Ends a failed attempt. The chunk stays ASSIGNED; the listener retries it, and if this
+     * worker dies first the master re-dispatches it once the heartbeat is stale.
+     */
+    public void fail(ChunkDescriptor chunk, ChunkState.Attempt attempt, Exception error) {
+        active.remove(attempt.getAttemptId());
+        leave(chunk, attempt, new Update().set("error", String.valueOf(error.getMessage())));
+    }
+
+    private void leave(ChunkDescriptor chunk, ChunkState.Attempt attempt, Update update) {
+        String id = ChunkState.idOf(chunk.getTrainingId(), chunk.getChunkIndex());
+        try {
+            // Only this attempt leaves, a duplicate still running keeps the chunk alive
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(id).and("running.attemptId").is(attempt.getAttemptId())),
+                    update.pull("running", new Document("attemptId", attempt.getAttemptId())), ChunkState.class);
+        } catch (RuntimeException e) {
+            // Must not mask the original failure, the stale entry ages out with its heartbeat
+            logger.warn("Failed to record the end of attempt {} at chunk {}", attempt.getAttemptId(), id, e);
+        }
+    }
+}
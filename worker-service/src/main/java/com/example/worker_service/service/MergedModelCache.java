@@ -0,0 +1,87 @@
+package com.example.worker_service.service;
+
+import com.example.worker_service.model.MergedModel;
+import com.example.worker_service.model.MessageCodec;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latest merged model of each recent run, as broadcast by the master's parameter server. Every
+ * worker instance reads the whole topic under its own consumer group, so a chunk can start from
+ * the parameters merged so far instead of from a fresh initialization.
+ */
+@Component
+public class MergedModelCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MergedModelCache.class);
+
+    @Value("${worker.sgd.cached-models:16}")
+    private int maxModels;
+
+    private final Map<String, MergedModel> models = new LinkedHashMap<>(16, 0.75f, true);
+
+    @KafkaListener(topics = "training-models", groupId = "#{'worker-models-' + T(java.util.UUID).randomUUID()}",
+            properties = {"auto.offset.reset=latest",
+                    "value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer"})
+    public void onMergedModel(@Payload byte[] message) {
+        MergedModel model;
+        try {
+            model = MessageCodec.decodeModel(message);
+        } catch (IOException e) {
+            logger.error("Discarding malformed merged model", e);
+            return;
+        }
+        synchronized (models) {
+            MergedModel current = models.get(model.getTrainingId());
+            if (current != null && current.getVersion() >= model.getVersion()) {
+                return;
+            }
+            models.put(model.getTrainingId(), model);
+            if (models.size() > maxModels) {
+                models.remove(models.keySet().iterator().next()); // Least recently used run
+            }
+        }
+        logger.debug("Cached merged model version {} for trainingId: {}", model.getVersion(), model.getTrainingId());
+    }
+
+    /**
+     * Copies the newest merged parameters of a run into a freshly initialized network.
+     *
+     * @return the merged model applied, or null if none is cached or its layout does not match
+     */
+    public MergedModel applyTo(String trainingId, MultiLayerNetwork network) {
+        MergedModel model;
+        synchronized (models) {
+            model = models.get(trainingId);
+        }
+        if (model == null) {
+            return null;
+        }
+        Map<String, INDArray> table = network.paramTable();
+        for (Map.Entry<String, float[]> entry : model.getParams().entrySet()) {
+            INDArray param = table.get(entry.getKey());
+            if (param == null || param.length() != entry.getValue().length) {
+                logger.warn("Merged model of trainingId: {} does not match the network, starting from scratch", trainingId);
+                return null;
+            }
+        }
+        for (Map.Entry<String, float[]> entry : model.getParams().entrySet()) {
+            INDArray param = table.get(entry.getKey());
+            // Parameter views share the network's flattened buffer, assign writes through in place
+            param.assign(Nd4j.create(entry.getValue(), param.shape(), 'c'));
+        }
+        return model; // Replaced rather than changed by newer versions, so it stays the chunk's starting point
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.worker_service.service;
+
+import com.example.worker_service.model.LayerSpec;
+import com.example.worker_service.model.ModelSpec;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.learning.config.AdaGrad;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.learning.config.IUpdater;
+import org.nd4j.linalg.learning.config.Nesterovs;
+import org.nd4j.linalg.learning.config.RmsProp;
+import org.nd4j.linalg.learning.config.Sgd;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Initialized networks keyed by model spec and input/output size. Building and initializing a
+ * network (configuration validation, workspace setup, random weight init) is paid once per
+ * layout; each task gets a clone, which copies the parameters and fresh updater state and
+ * matches a new network with the same seed.
+ */
+@Component
+public class ModelTemplateCache {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${worker.model-cache.max-entries:8}")
+    private int maxEntries;
+
+    private final Map<String, MultiLayerNetwork> templates = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @return a network of its own for the caller to train
+     */
+    public MultiLayerNetwork create(ModelSpec spec, int inputColumns, int totalOutcomes) {
+        String key = key(spec, inputColumns, totalOutcomes);
+        MultiLayerNetwork template;
+        synchronized (templates) {
+            template = templates.get(key);
+        }
+        if (template == null) {
+            template = build(spec, inputColumns, totalOutcomes);
+            synchronized (templates) {
+                MultiLayerNetwork raced = templates.putIfAbsent(key, template);
+                if (raced != null) {
+                    template = raced;
+                } else if (templates.size() > maxEntries) {
+                    templates.remove(templates.keySet().iterator().next()); // Least recently used layout
+                }
+            }
+        }
+        // Templates are never trained, so concurrent clones only read their parameters
+        return template.clone();
+    }
+
+    public int size() {
+        synchronized (templates) {
+            return templates.size();
+        }
+    }
+
+    private String key(ModelSpec spec, int inputColumns, int totalOutcomes) {
+        try {
+            return inputColumns + ":" + totalOutcomes + ":" + objectMapper.writeValueAsString(spec);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize model spec", e);
+        }
+    }
+
+    static MultiLayerNetwork build(ModelSpec spec, int inputColumns, int totalOutcomes) {
+        NeuralNetConfiguration.ListBuilder layers = new NeuralNetConfiguration.Builder()
+                .seed(spec.getSeed()) // Reproducibility, every worker of a run starts from the same weights
+                .updater(updater(spec.getUpdater(), spec.getLearningRate()))
+                .list();
+        int nIn = inputColumns; // Dynamic input size from dataset
+        int index = 0;
+        for (LayerSpec layer : spec.getLayers()) {
+            layers.layer(index++, new DenseLayer.Builder()
+                    .nIn(nIn)
+                    .nOut(layer.getWidth())
+                    .activation(Activation.valueOf(layer.getActivation().toUpperCase()))
+                    .build());
+            nIn = layer.getWidth();
+        }
+        layers.layer(index, new OutputLayer.Builder()
+                .nIn(nIn)
+                .nOut(totalOutcomes) // Dynamic output size from dataset
+                .activation(Activation.valueOf(spec.getOutputActivation().toUpperCase()))
+                .lossFunction(LossFunctions.LossFunction.valueOf(spec.getLossFunction().toUpperCase()))
+                .build());
+
+        MultiLayerNetwork model = new MultiLayerNetwork(layers.build());
+        model.init();
+        return model;
+    }
+
+    private static IUpdater updater(String name, double learningRate) {
+        return switch (name.toUpperCase()) {
+            case "SGD" -> new Sgd(learningRate);
+            case "NESTEROVS" -> new Nesterovs(learningRate);
+            case "RMSPROP" -> new RmsProp(learningRate);
+            case "ADAGRAD" -> new AdaGrad(learningRate);
+            case "ADAM" -> new Adam(learningRate);
+            default -> throw new IllegalArgumentException("Unknown updater: " + name);
+        };
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.worker_service.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stage timings of the training pipeline as {@code training.stage} timers and
+ * {@code training.stage.bytes} summaries, tagged by stage, trainingId and chunk so the slow
+ * stage of a slow run can be found. Bytes per second of a stage is the rate of its bytes sum
+ * over the rate of its seconds sum. Meters of a run are removed once it has been idle for the
+ * retention period, so a long-lived worker does not export every run it ever trained.
+ */
+@Component
+public class TrainingMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${worker.metrics.retention-ms:900000}")
+    private long retentionMs; // Longer than a few scrape intervals, so the final values are always scraped
+
+    private final Map<String, Long> lastRecorded = new ConcurrentHashMap<>(); // trainingId to millis
+
+    public void record(String stage, String trainingId, int chunk, long nanos) {
+        lastRecorded.put(trainingId, System.currentTimeMillis());
+        Timer.builder("training.stage")
+                .tags("stage", stage, "trainingId", trainingId, "chunk", chunkTag(chunk))
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBytes(String stage, String trainingId, int chunk, long bytes) {
+        lastRecorded.put(trainingId, System.currentTimeMillis());
+        DistributionSummary.builder("training.stage.bytes")
+                .baseUnit("bytes")
+                .tags("stage", stage, "trainingId", trainingId, "chunk", chunkTag(chunk))
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    /**
+     * Examples trained per second of {@code fit} time, one observation per chunk.
+     */
+    public void recordThroughput(String trainingId, int chunk, long examples, long fitNanos) {
+        if (fitNanos <= 0) {
+            return;
+        }
+        lastRecorded.put(trainingId, System.currentTimeMillis());
+        DistributionSummary.builder("training.fit.throughput")
+                .baseUnit("samples/s")
+                .tags("trainingId", trainingId, "chunk", chunkTag(chunk))
+                .register(meterRegistry)
+                .record(examples * 1e9 / fitNanos);
+    }
+
+    /**
+     * Relative L2 distance between the trained parameters and what the master reconstructs from
+     * an update, one observation per chunk. Compare against bytes of the serialize stage to pick
+     * an update encoding.
+     */
+    public void recordDrift(String trainingId, int chunk, String encoding, double drift) {
+        lastRecorded.put(trainingId, System.currentTimeMillis());
+        DistributionSummary.builder("training.update.drift")
+                .tags("trainingId", trainingId, "chunk", chunkTag(chunk), "encoding", encoding)
+                .register(meterRegistry)
+                .record(drift);
+    }
+
+    /**
+     * Times a Kafka send from now until the broker acknowledges it. Failed sends are not timed,
+     * the producer logs them.
+     */
+    public void recordSend(CompletableFuture<?> send, String stage, String trainingId, int chunk) {
+        long start = System.nanoTime();
+        send.whenComplete((result, error) -> {
+            if (error == null) {
+                record(stage, trainingId, chunk, System.nanoTime() - start);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${worker.metrics.sweep-interval-ms:60000}")
+    public void removeIdleRuns() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        lastRecorded.entrySet().removeIf(entry -> {
+            if (entry.getValue() >= cutoff) {
+                return false;
+            }
+            for (Meter meter : meterRegistry.getMeters()) {
+                if (entry.getKey().equals(meter.getId().getTag("trainingId"))) {
+                    meterRegistry.remove(meter);
+                }
+            }
+            return true;
+        });
+    }
+
+    private static String chunkTag(int chunk) {
+        return String.valueOf(chunk);
+    }
+}
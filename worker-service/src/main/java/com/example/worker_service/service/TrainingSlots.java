@@ -0,0 +1,72 @@
+package com.example.worker_service.service;
+
+import jakarta.annotation.PostConstruct;
+import org.bytedeco.javacpp.Pointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits how many chunks this process trains at once. Listener threads can outnumber slots, a
+ * thread that polled a chunk waits here until cores and memory are free for it.
+ */
+@Component
+public class TrainingSlots {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrainingSlots.class);
+
+    @Value("${worker.training.max-concurrent:0}")
+    private int maxConcurrent; // 0 derives the limit from cores and memory
+
+    @Value("${worker.training.threads-per-slot:2}")
+    private int threadsPerSlot; // Cores one training keeps busy, ND4J ops on a small dense net rarely use more
+
+    @Value("${worker.training.memory-per-slot-bytes:536870912}")
+    private long memoryPerSlotBytes; // Heap for the parsed chunk plus off-heap for ND4J arrays
+
+    private Semaphore permits;
+    private int slots;
+
+    @PostConstruct
+    void init() {
+        slots = maxConcurrent > 0 ? maxConcurrent
+                : computeSlots(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory(),
+                        Pointer.maxBytes(), threadsPerSlot, memoryPerSlotBytes);
+        permits = new Semaphore(slots, true); // Fair, chunks start in the order they were polled
+        logger.info("Training up to {} chunks concurrently", slots);
+    }
+
+    static int computeSlots(int cores, long maxHeapBytes, long maxOffHeapBytes, int threadsPerSlot, long memoryPerSlotBytes) {
+        int byCores = cores / Math.max(1, threadsPerSlot);
+        long memory = maxOffHeapBytes > 0 ? Math.min(maxHeapBytes, maxOffHeapBytes) : maxHeapBytes;
+        long byMemory = memory / Math.max(1, memoryPerSlotBytes);
+        return (int) Math.max(1, Math.min(byCores, byMemory));
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    /**
+     * Blocks until the given number of slots is free, capped at the total so a wide request cannot
+     * wait forever.
+     *
+     * @return the number of slots taken, to pass back to {@link #release(int)}
+     */
+    public int acquire(int wanted) throws InterruptedException {
+        int taken = Math.max(1, Math.min(wanted, slots));
+        permits.acquire(taken);
+        return taken;
+    }
+
+    public void release(int taken) {
+        permits.release(taken);
+    }
+
+    public int available() {
+        return permits.availablePermits();
+    }
+}
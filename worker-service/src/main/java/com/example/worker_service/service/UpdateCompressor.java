@@ -0,0 +1,238 @@
+package com.example.worker_service.service;
+
+import com.example.worker_service.model.ChunkDescriptor;
+import com.example.worker_service.model.MergedModel;
+import com.example.worker_service.model.MessageCodec;
+import com.example.worker_service.model.ModelSpec;
+import com.example.worker_service.model.ParameterUpdate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shrinks parameter updates for runs that opt in, trading fidelity for bytes on the wire. FP16
+ * and BF16 round every value to 16 bits. TOPK and THRESHOLD send only the entries that moved
+ * most from the merged model version the chunk started from; the master keeps recent versions
+ * and adds the delta to the same one. A chunk that started from no merged version, or from a
+ * checkpoint, has no base both sides share and is sent complete.
+ *
+ * <p>What a delta leaves out is kept as a residual and added to this worker's next delta of the
+ * same run (error feedback), so it arrives late rather than never. Residuals are kept for the
+ * most recent {@code worker.update.feedback-runs} runs; the last chunks of a run, and runs pushed
+ * out of that window, do lose what they left out.
+ */
+@Component
+public class UpdateCompressor {
+
+    @Value("${worker.update.encoding:FLOAT32}")
+    private String defaultEncoding; // Used when the request leaves updateEncoding out
+
+    @Value("${worker.update.top-k:0.01}")
+    private double defaultTopK; // Share of entries a TOPK update sends
+
+    @Value("${worker.update.threshold:0.001}")
+    private double defaultThreshold; // Smallest change a THRESHOLD update sends
+
+    @Value("${worker.update.feedback-runs:16}")
+    private int feedbackRuns; // Runs whose left-out entries are carried into the next delta
+
+    // Per run, entries earlier deltas left out, least recently used first
+    private final Map<String, Map<String, float[]>> residuals = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * An encoded update and how far the parameters the master gets are from the trained ones.
+     */
+    public static class Compressed {
+        private final ParameterUpdate update;
+        private final double drift;
+
+        Compressed(ParameterUpdate update, double drift) {
+            this.update = update;
+            this.drift = drift;
+        }
+
+        public ParameterUpdate getUpdate() {
+            return update;
+        }
+
+        /**
+         * Relative L2 error, |trained - received| / |trained|. 0 for FLOAT32.
+         */
+        public double getDrift() {
+            return drift;
+        }
+    }
+
+    /**
+     * @param base merged model the chunk's network was initialized from, null if none
+     */
+    public Compressed compress(ChunkDescriptor chunk, ModelSpec spec, long sampleCount, Map<String, float[]> params,
+                               MergedModel base) {
+        // The request wins over this worker's configured defaults
+        String encoding = (spec.getUpdateEncoding() != null ? spec.getUpdateEncoding() : defaultEncoding).toUpperCase();
+        ParameterUpdate update = new ParameterUpdate(chunk.getTrainingId(), chunk.getChunkIndex(), chunk.getTotalChunks(),
+                sampleCount, params);
+        update.setEncoding(encoding);
+        double drift = switch (encoding) {
+            case "FLOAT32" -> 0.0;
+            case "FP16", "BF16" -> roundingDrift(params, encoding.equals("BF16"));
+            case "TOPK" -> delta(base, update, spec.getUpdateTopK() != null ? spec.getUpdateTopK() : defaultTopK, true);
+            case "THRESHOLD" -> delta(base, update,
+                    spec.getUpdateThreshold() != null ? spec.getUpdateThreshold() : defaultThreshold, false);
+            default -> throw new IllegalArgumentException("Unknown update encoding: " + encoding);
+        };
+        return new Compressed(update, drift);
+    }
+
+    /**
+     * Turns the update into a delta against the base's parameters plus the run's residual,
+     * keeping the {@code limit} share of entries that moved most for TOPK, or entries that moved
+     * at least {@code limit} for THRESHOLD. Entries left out arrive as the base's values and
+     * become the residual of the next delta.
+     */
+    private double delta(MergedModel base, ParameterUpdate update, double limit, boolean topK) {
+        Map<String, float[]> params = update.getParams();
+        if (base == null || !sameLayout(base.getParams(), params)) {
+            return 0.0; // Nothing both sides share, sent complete
+        }
+        Map<String, float[]> carried = takeResidual(update.getTrainingId(), params);
+        Map<String, float[]> deltas = new LinkedHashMap<>();
+        int entries = 0;
+        for (Map.Entry<String, float[]> entry : params.entrySet()) {
+            float[] values = entry.getValue();
+            float[] start = base.getParams().get(entry.getKey());
+            float[] owed = carried != null ? carried.get(entry.getKey()) : null;
+            float[] delta = new float[values.length];
+            for (int i = 0; i < values.length; i++) {
+                delta[i] = values[i] - start[i] + (owed != null ? owed[i] : 0f);
+            }
+            deltas.put(entry.getKey(), delta);
+            entries += values.length;
+        }
+        float cutoff = topK ? kthLargest(deltas, Math.max(1, (int) Math.ceil(limit * entries))) : (float) limit;
+        Map<String, float[]> residual = new LinkedHashMap<>();
+        double error = 0.0;
+        double norm = 0.0;
+        for (Map.Entry<String, float[]> entry : deltas.entrySet()) {
+            float[] delta = entry.getValue();
+            float[] start = base.getParams().get(entry.getKey());
+            float[] values = params.get(entry.getKey());
+            float[] left = new float[delta.length];
+            for (int i = 0; i < delta.length; i++) {
+                if (Math.abs(delta[i]) < cutoff) {
+                    left[i] = delta[i];
+                    delta[i] = 0f; // Left out, the master keeps the base's value
+                }
+                double difference = values[i] - (start[i] + delta[i]); // The same float addition the master does
+                error += difference * difference;
+                norm += (double) values[i] * values[i];
+            }
+            residual.put(entry.getKey(), left);
+        }
+        putResidual(update.getTrainingId(), residual);
+        update.setParams(deltas);
+        update.setBaseVersion(base.getVersion());
+        return norm > 0 ? Math.sqrt(error / norm) : 0.0;
+    }
+
+    /**
+     * Removes and returns the run's residual, or null if there is none of the params' layout.
+     */
+    private synchronized Map<String, float[]> takeResidual(String trainingId, Map<String, float[]> params) {
+        Map<String, float[]> residual = residuals.remove(trainingId);
+        return residual != null && sameLayout(residual, params) ? residual : null;
+    }
+
+    /**
+     * Stores what a delta left out, adding to the residual of a chunk of the run that finished meanwhile.
+     */
+    private synchronized void putResidual(String trainingId, Map<String, float[]> residual) {
+        Map<String, float[]> other = residuals.get(trainingId);
+        if (other != null && sameLayout(other, residual)) {
+            for (Map.Entry<String, float[]> entry : residual.entrySet()) {
+                float[] values = entry.getValue();
+                float[] more = other.get(entry.getKey());
+                for (int i = 0; i < values.length; i++) {
+                    values[i] += more[i];
+                }
+            }
+        }
+        residuals.put(trainingId, residual);
+        while (residuals.size() > feedbackRuns) {
+            residuals.remove(residuals.keySet().iterator().next());
+        }
+    }
+
+    static double roundingDrift(Map<String, float[]> params, boolean bfloat16) {
+        double error = 0.0;
+        double norm = 0.0;
+        for (float[] values : params.values()) {
+            for (float value : values) {
+                float rounded = bfloat16
+                        ? MessageCodec.fromBfloat16(MessageCodec.toBfloat16(value))
+                        : MessageCodec.fromFloat16(MessageCodec.toFloat16(value));
+                double difference = value - rounded;
+                error += difference * difference;
+                norm += (double) value * value;
+            }
+        }
+        return norm > 0 ? Math.sqrt(error / norm) : 0.0;
+    }
+
+    /**
+     * Magnitude of the k-th largest entry over every delta, by quickselect on a copy.
+     */
+    static float kthLargest(Map<String, float[]> deltas, int k) {
+        float[] magnitudes = new float[deltas.values().stream().mapToInt(delta -> delta.length).sum()];
+        int n = 0;
+        for (float[] delta : deltas.values()) {
+            for (float value : delta) {
+                magnitudes[n++] = Math.abs(value);
+            }
+        }
+        int target = Math.min(k, n) - 1; // Index in descending order
+        int low = 0;
+        int high = n - 1;
+        while (low < high) {
+            float pivot = magnitudes[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (magnitudes[i] > pivot) {
+                    i++;
+                }
+                while (magnitudes[j] < pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    float swap = magnitudes[i];
+                    magnitudes[i++] = magnitudes[j];
+                    magnitudes[j--] = swap;
+                }
+            }
+            if (target <= j) {
+                high = j;
+            } else if (target >= i) {
+                low = i;
+            } else {
+                break; // Between j and i every entry equals the pivot
+            }
+        }
+        return magnitudes[target];
+    }
+
+    private static boolean sameLayout(Map<String, float[]> base, Map<String, float[]> params) {
+        if (base.size() != params.size()) {
+            return false;
+        }
+        for (Map.Entry<String, float[]> entry : params.entrySet()) {
+            float[] values = base.get(entry.getKey());
+            if (values == null || values.length != entry.getValue().length) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
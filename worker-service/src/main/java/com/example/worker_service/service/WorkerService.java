@@ -1,125 +1,446 @@
 package com.example.worker_service.service;
 
+import com.example.worker_service.model.ChunkDescriptor;
+import com.example.worker_service.model.ChunkState;
+import com.example.worker_service.model.MergedModel;
+import com.example.worker_service.model.MessageCodec;
+import com.example.worker_service.model.ModelSpec;
+import com.example.worker_service.model.ParameterUpdate;
+import com.example.worker_service.model.ProgressEvent;
 import com.example.worker_service.model.TrainingStatus;
-import com.example.worker_service.util.CustomDataSetIterator;
-import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
-import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
-import org.deeplearning4j.nn.conf.layers.DenseLayer;
-import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import com.example.worker_service.util.CsvSchema;
+import com.example.worker_service.util.LoadStats;
+import com.example.worker_service.util.PrefetchingDataSetIterator;
+import com.example.worker_service.util.StreamingBatchSource;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.Document;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
-import org.nd4j.linalg.activations.Activation;
+import org.deeplearning4j.parallelism.ParallelWrapper;
 import org.nd4j.linalg.api.ndarray.INDArray;
-import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
-import org.nd4j.linalg.learning.config.Adam;
-import org.nd4j.linalg.lossfunctions.LossFunctions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.SetOperation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.S3Client;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 @Service
 public class WorkerService {
 
     private static final Logger logger = LoggerFactory.getLogger(WorkerService.class);
-    private static final int BATCH_SIZE = 32; // Consistent with CustomDataSetIterator
 
     @Autowired
     private MongoTemplate mongoTemplate;
 
-    @KafkaListener(topics = "training-tasks", groupId = "workers")
-    public void processTask(@Payload String datasetUrl, @Header(KafkaHeaders.RECEIVED_KEY) String trainingId) {
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> binaryKafkaTemplate;
+
+    @Autowired
+    private MergedModelCache mergedModels;
+
+    @Autowired
+    private TrainingSlots trainingSlots;
+
+    @Autowired
+    private ChunkTracker chunkTracker;
+
+    @Autowired
+    private CheckpointStore checkpointStore;
+
+    @Autowired
+    private ModelTemplateCache modelTemplates;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Autowired
+    private ChunkCache chunkCache;
+
+    @Autowired
+    private TrainingMetrics metrics;
+
+    @Autowired
+    private UpdateCompressor updateCompressor;
+
+    @Value("${worker.checkpoint.interval-ms:60000}")
+    private long checkpointIntervalMs; // 0 disables checkpoints, chunks shorter than this never write one
+
+    @Value("${worker.parallel-wrapper.enabled:false}")
+    private boolean parallelWrapperEnabled;
+
+    @Value("${worker.parallel-wrapper.min-bytes:67108864}")
+    private long parallelWrapperMinBytes; // Only chunks this large are worth spreading over several trainers
+
+    @Value("${worker.parallel-wrapper.workers:4}")
+    private int parallelWrapperWorkers;
+
+    @Value("${worker.parallel-wrapper.averaging-frequency:5}")
+    private int averagingFrequency; // Minibatches each trainer runs between parameter averages
+
+    @Value("${worker.sgd.start-from-merged:true}")
+    private boolean startFromMerged; // Asynchronous SGD, continue from the parameters merged so far
+
+    @Value("${worker.iterator.streaming-threshold-bytes:268435456}")
+    private long streamingThresholdBytes; // Chunks above 256 MB are streamed instead of loaded into memory
+
+    @Value("${worker.iterator.spill-dir:${java.io.tmpdir}}")
+    private String spillDir;
+
+    @Value("${worker.csv.label-column:}")
+    private String labelColumn; // Header name of the class label, blank means the last column
+
+    @Value("${worker.csv.num-classes:3}")
+    private int numClasses;
+
+    @Value("${worker.csv.label-names:Low,Medium,High}")
+    private List<String> labelNames;
+
+    @Value("${worker.prefetch.queue-depth:32}")
+    private int prefetchQueueDepth; // Prepared minibatches buffered ahead of training
+
+    @Value("${worker.prefetch.parser-threads:2}")
+    private int parserThreads;
+
+    // Listener threads beyond the partition count of training-tasks stay idle, TrainingSlots bounds actual training
+    @KafkaListener(topics = "training-tasks", groupId = "workers", concurrency = "${worker.listener.concurrency:4}",
+            properties = "value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer")
+    public void processTask(@Payload byte[] message) {
+        ChunkDescriptor chunk;
         try {
-            logger.info("Received task for trainingId: {}, datasetUrl: {}", trainingId, datasetUrl);
+            chunk = MessageCodec.decodeTask(message);
+        } catch (IOException e) {
+            logger.error("Discarding malformed task message of {} bytes", message.length, e);
+            return; // Redelivering an unparseable message would never succeed
+        }
 
-            // Create iterator for the S3 dataset chunk
-            DataSetIterator iterator = new CustomDataSetIterator(datasetUrl, BATCH_SIZE);
+        String trainingId = chunk.getTrainingId();
+        ModelSpec spec = chunk.getModel() != null ? chunk.getModel() : new ModelSpec(); // Tasks from before model specs
+        String datasetUrl = "s3://" + chunk.getBucket() + "/" + chunk.getKey()
+                + " [" + chunk.getStartByte() + ", " + chunk.getEndByte() + ")";
+        logger.info("Received task for trainingId: {}, chunk {}/{}, datasetUrl: {}", trainingId,
+                chunk.getChunkIndex() + 1, chunk.getTotalChunks(), datasetUrl);
 
-            // Build and train the model dynamically based on dataset properties
-            MultiLayerNetwork model = buildModel(iterator.inputColumns(), iterator.totalOutcomes());
-            model.fit(iterator);
+        // Wait for cores and memory before the chunk is claimed, downloaded and parsed. Claimed
+        // earlier, a chunk queued behind busy slots would look like a straggler to the speculator
+        long chunkBytes = chunk.getEndByte() - chunk.getStartByte();
+        boolean wide = parallelWrapperEnabled && chunkBytes >= parallelWrapperMinBytes;
+        int slots;
+        try {
+            slots = trainingSlots.acquire(wide ? parallelWrapperWorkers : 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Shutting down while waiting for a training slot
+            throw new RuntimeException("Interrupted before training chunk " + chunk.getChunkIndex(), e);
+        }
+        ChunkState.Attempt attempt;
+        try {
+            attempt = chunkTracker.claim(chunk);
+        } catch (RuntimeException e) {
+            trainingSlots.release(slots);
+            throw e;
+        }
+        if (attempt == null) {
+            trainingSlots.release(slots);
+            logger.info("Chunk {} of trainingId: {} is already done or failed, skipping redelivery", chunk.getChunkIndex(),
+                    trainingId);
+            return;
+        }
+        try {
+            PrefetchingDataSetIterator iterator;
+            MultiLayerNetwork model;
+            MergedModel base = null; // Merged parameters the network started from, the base of a delta update
+            long sampleCount;
+            long fitNanos;
+            try {
+                // Create iterator over the chunk's byte range of the original dataset
+                iterator = createIterator(chunk, spec);
 
-            // Extract model weights after training
-            Map<String, double[]> weights = extractWeights(model);
+                // A redelivered chunk picks up from its latest checkpoint instead of starting over
+                CheckpointStore.Checkpoint checkpoint = checkpointStore.load(chunk);
+                int resumeEpoch = 0;
+                int resumeBatch = 0;
+                if (checkpoint != null && fits(checkpoint.getModel(), iterator)) {
+                    model = checkpoint.getModel();
+                    resumeEpoch = checkpoint.getEpoch();
+                    resumeBatch = checkpoint.getBatch();
+                    logger.info("Resuming chunk {} of trainingId: {} from checkpoint at epoch {} after {} minibatches",
+                            chunk.getChunkIndex(), trainingId, resumeEpoch, resumeBatch);
+                } else {
+                    // Build the network the request asked for, sized to the dataset's columns
+                    model = modelTemplates.create(spec, iterator.inputColumns(), iterator.totalOutcomes());
+                    if (startFromMerged) {
+                        base = mergedModels.applyTo(trainingId, model);
+                        if (base != null) {
+                            logger.info("Chunk {} of trainingId: {} starts from merged model version {}",
+                                    chunk.getChunkIndex(), trainingId, base.getVersion());
+                        }
+                    }
+                }
+                long fitStart = System.nanoTime();
+                try {
+                    sampleCount = fit(chunk, spec.getEpochs(), model, iterator, slots, resumeEpoch, resumeBatch);
+                } finally {
+                    iterator.close(); // Stops prefetching and removes any spill file
+                }
+                fitNanos = System.nanoTime() - fitStart;
+            } finally {
+                trainingSlots.release(slots);
+            }
+            // A high starved share means this worker waits on data rather than on compute
+            logger.info("Prefetch stats for trainingId: {}, chunk {}: {}", trainingId, chunk.getChunkIndex(), iterator.getStats());
+            logger.info("Load stats for trainingId: {}, chunk {}: {}", trainingId, chunk.getChunkIndex(), iterator.getLoadStats());
+            recordStages(chunk, iterator, fitNanos);
+            if (iterator.getMalformedRows() > 0) {
+                logger.warn("Skipped {} malformed rows in chunk {} of trainingId: {}", iterator.getMalformedRows(),
+                        chunk.getChunkIndex(), trainingId);
+            }
 
             logger.info("Training completed for dataset: {}", datasetUrl);
 
-            // Update status in MongoDB with weights
-            updateStatus(trainingId, weights);
+            if (chunkTracker.isDone(chunk)) {
+                // Lost the race to another attempt, its parameters are already merged
+                chunkTracker.abandon(chunk, attempt);
+                checkpointStore.delete(chunk);
+                logger.info("Chunk {} of trainingId: {} was finished by another attempt, discarding this result",
+                        chunk.getChunkIndex(), trainingId);
+                return;
+            }
+
+            // Hand the trained parameters to the master's parameter server, which averages all chunks
+            publishUpdate(chunk, spec, sampleCount, extractParams(model), base);
+
+            // Only once the broker has the update, a DONE chunk is never re-dispatched
+            chunkTracker.complete(chunk, attempt);
+            checkpointStore.delete(chunk);
+
+            // Update progress in MongoDB, the run completes once the master stores the merged model
+            updateStatus(trainingId, chunk.getChunkIndex());
 
+        } catch (InterruptedException e) {
+            chunkTracker.fail(chunk, attempt, e);
+            Thread.currentThread().interrupt(); // Shutting down while waiting for the broker
+            throw new RuntimeException("Interrupted while processing chunk " + chunk.getChunkIndex(), e);
         } catch (IOException e) {
+            chunkTracker.fail(chunk, attempt, e);
             logger.error("Failed to load dataset for trainingId: {}, datasetUrl: {}", trainingId, datasetUrl, e);
-            throw new RuntimeException("Dataset loading failed", e);
+            throw new RuntimeException("Dataset loading failed", e); // Retried with backoff, then dead-lettered
         } catch (Exception e) {
+            chunkTracker.fail(chunk, attempt, e);
             logger.error("Failed to process task for trainingId: {}, datasetUrl: {}", trainingId, datasetUrl, e);
             throw new RuntimeException("Task processing failed", e);
         }
     }
 
-    private MultiLayerNetwork buildModel(int inputColumns, int totalOutcomes) {
-        MultiLayerConfiguration config = new NeuralNetConfiguration.Builder()
-                .seed(123) // Reproducibility
-                .updater(new Adam(0.001)) // Learning rate
-                .list()
-                .layer(0, new DenseLayer.Builder()
-                        .nIn(inputColumns) // Dynamic input size from dataset
-                        .nOut(100) // Hidden layer size (configurable)
-                        .activation(Activation.RELU)
-                        .build())
-                .layer(1, new OutputLayer.Builder()
-                        .nIn(100)
-                        .nOut(totalOutcomes) // Dynamic output size from dataset
-                        .activation(Activation.SOFTMAX)
-                        .lossFunction(LossFunctions.LossFunction.MCXENT) // Multi-class cross-entropy
-                        .build())
-                .build();
-
-        MultiLayerNetwork model = new MultiLayerNetwork(config);
-        model.init();
-        return model;
+    private PrefetchingDataSetIterator createIterator(ChunkDescriptor chunk, ModelSpec spec) throws IOException {
+        // Columns named by the request win over this worker's configured defaults
+        CsvSchema schema = CsvSchema.fromHeader(chunk.getHeader(),
+                spec.getLabelColumn() != null ? spec.getLabelColumn() : labelColumn,
+                spec.getFeatureColumns(),
+                spec.getNumClasses() != null ? spec.getNumClasses() : numClasses,
+                spec.getLabelNames() != null ? spec.getLabelNames() : labelNames);
+        long chunkBytes = chunk.getEndByte() - chunk.getStartByte();
+        if (chunkBytes > streamingThresholdBytes) {
+            // Too big to hold in the heap, parse while downloading and replay epochs from a local spill file
+            logger.info("Streaming chunk {} of trainingId: {} ({} bytes)", chunk.getChunkIndex(), chunk.getTrainingId(), chunkBytes);
+            return new PrefetchingDataSetIterator(new StreamingBatchSource(s3Client, chunk, schema, spec.getBatchSize(), Path.of(spillDir)),
+                    prefetchQueueDepth, parserThreads);
+        }
+        // Repeated runs over the same dataset read the parsed chunk from local disk
+        return new PrefetchingDataSetIterator(chunkCache.open(chunk, schema, spec.getBatchSize()), prefetchQueueDepth);
+    }
+
+    /**
+     * Trains the remaining epochs, starting after {@code batch} minibatches of {@code epoch}.
+     *
+     * @return examples in one pass over the chunk, the weight of its parameters in the merge
+     */
+    private long fit(ChunkDescriptor chunk, int epochs, MultiLayerNetwork model, PrefetchingDataSetIterator iterator,
+                     int trainers, int epoch, int batch) throws Exception {
+        long examplesPerPass = 0;
+        ParallelWrapper wrapper = trainers > 1 ? new ParallelWrapper.Builder<>(model)
+                .workers(trainers)
+                .prefetchBuffer(0) // The iterator already prefetches
+                .averagingFrequency(averagingFrequency)
+                .reportScoreAfterAveraging(false)
+                .build() : null;
+        try {
+            long lastCheckpoint = System.currentTimeMillis();
+            for (int first = epoch; epoch < epochs; epoch++, batch = 0) {
+                if (epoch > first) {
+                    iterator.reset(); // Replays the chunk from memory or the spill file
+                }
+                long examplesBefore = iterator.getStats().getExamples(); // Skipped minibatches count too
+                batch = iterator.skip(batch);
+                if (wrapper != null) {
+                    // Each trainer fits its own replica on different minibatches, replicas are averaged back into model
+                    wrapper.fit(iterator); // Opaque to us, so no checkpoints on this path
+                } else {
+                    while (iterator.hasNext()) {
+                        model.fit(iterator.next());
+                        batch++;
+                        if (checkpointIntervalMs > 0 && System.currentTimeMillis() - lastCheckpoint >= checkpointIntervalMs) {
+                            try {
+                                checkpointStore.save(chunk, model, epoch, batch);
+                            } catch (IOException | RuntimeException e) {
+                                logger.warn("Failed to checkpoint chunk {} of trainingId: {}, training continues",
+                                        chunk.getChunkIndex(), chunk.getTrainingId(), e);
+                            }
+                            lastCheckpoint = System.currentTimeMillis();
+                        }
+                    }
+                    model.incrementEpochCount();
+                }
+                examplesPerPass = iterator.getStats().getExamples() - examplesBefore;
+            }
+        } finally {
+            if (wrapper != null) {
+                wrapper.close();
+            }
+        }
+        return examplesPerPass;
+    }
+
+    private void recordStages(ChunkDescriptor chunk, PrefetchingDataSetIterator iterator, long fitNanos) {
+        String trainingId = chunk.getTrainingId();
+        int index = chunk.getChunkIndex();
+        LoadStats load = iterator.getLoadStats();
+        if (load.getFetchedBytes() > 0) {
+            metrics.record("fetch", trainingId, index, load.getFetchNanos());
+            metrics.recordBytes("fetch", trainingId, index, load.getFetchedBytes());
+        }
+        if (load.getCacheLoadNanos() > 0) {
+            metrics.record("cache-load", trainingId, index, load.getCacheLoadNanos());
+        } else {
+            metrics.record("parse", trainingId, index, load.getParseNanos());
+        }
+        metrics.record("assemble", trainingId, index, load.getAssembleNanos());
+        // Time training sat waiting for minibatches belongs to the data stages, not to compute
+        long waitNanos = iterator.getStats().getWaitNanos();
+        long computeNanos = Math.max(0, fitNanos - waitNanos);
+        metrics.record("data-wait", trainingId, index, waitNanos);
+        metrics.record("fit", trainingId, index, computeNanos);
+        metrics.recordThroughput(trainingId, index, iterator.getStats().getExamples(), computeNanos);
+    }
+
+    private static boolean fits(MultiLayerNetwork model, PrefetchingDataSetIterator iterator) {
+        int outputLayer = model.getnLayers() - 1;
+        return model.layerInputSize(0) == iterator.inputColumns() && model.layerSize(outputLayer) == iterator.totalOutcomes();
     }
 
-    private Map<String, double[]> extractWeights(MultiLayerNetwork model) {
-        Map<String, double[]> weights = new HashMap<>();
-        // Get all parameters (weights and biases) from the model
-        INDArray allParams = model.params(); // Returns a single INDArray with all parameters
-        // Alternatively, use paramTable() for per-layer breakdown
-        Map<String, INDArray> paramTable = model.paramTable();
-
-        for (Map.Entry<String, INDArray> entry : paramTable.entrySet()) {
-            String paramName = entry.getKey(); // e.g., "0_W" (weights), "0_b" (bias)
-            INDArray paramArray = entry.getValue();
-            weights.put(paramName, paramArray.data().asDouble());
+    static Map<String, float[]> extractParams(MultiLayerNetwork model) {
+        Map<String, float[]> params = new LinkedHashMap<>();
+        for (Map.Entry<String, INDArray> entry : model.paramTable().entrySet()) {
+            // Entries are views into one flattened buffer, dup() copies just this parameter in row-major order
+            params.put(entry.getKey(), entry.getValue().dup('c').data().asFloat()); // e.g. "0_W", "0_b"
         }
-        return weights;
+        return params;
     }
 
-    private void updateStatus(String trainingId, Map<String, double[]> weights) {
+    /**
+     * Encodes the update and waits for the broker to acknowledge it, bounded by the producer's
+     * delivery.timeout.ms.
+     *
+     * @throws ExecutionException if the send failed, the chunk is then retried
+     */
+    private void publishUpdate(ChunkDescriptor chunk, ModelSpec spec, long sampleCount, Map<String, float[]> params,
+                               MergedModel base) throws InterruptedException, ExecutionException {
+        String trainingId = chunk.getTrainingId();
+        long start = System.nanoTime();
+        UpdateCompressor.Compressed compressed = updateCompressor.compress(chunk, spec, sampleCount, params, base);
+        ParameterUpdate update = compressed.getUpdate();
+        byte[] message = MessageCodec.encodeUpdate(update); // float32, 16-bit or sparse, by encoding
+        metrics.record("serialize", trainingId, chunk.getChunkIndex(), System.nanoTime() - start);
+        metrics.recordBytes("serialize", trainingId, chunk.getChunkIndex(), message.length);
+        metrics.recordDrift(trainingId, chunk.getChunkIndex(), update.getEncoding(), compressed.getDrift());
+        long denseBytes = params.values().stream().mapToLong(values -> (long) values.length * Float.BYTES).sum();
+        logger.info("Encoded update for chunk {} of trainingId: {} as {}{}: {} bytes for {} bytes of parameters, relative drift {}",
+                chunk.getChunkIndex(), trainingId, update.getEncoding(),
+                update.getBaseVersion() >= 0 ? " delta against version " + update.getBaseVersion() : "",
+                message.length, denseBytes, String.format("%.2e", compressed.getDrift()));
+        // Keyed by trainingId so every update of a run is merged by the same master instance
+        CompletableFuture<SendResult<String, byte[]>> send = binaryKafkaTemplate.send("training-results", trainingId, message);
+        metrics.recordSend(send, "publish", trainingId, chunk.getChunkIndex());
+        send.get();
+    }
+
+    private void updateStatus(String trainingId, int chunkIndex) {
         Query query = new Query(Criteria.where("id").is(trainingId));
-        Update update = new Update()
-                .inc("progress", 25) // 25% per chunk (assuming 4 chunks total)
-                .set("weights", weights); // Store weights in MongoDB
+        query.fields().include("status", "progress", "totalChunks", "completedChunks");
+        AggregationUpdate update = progressUpdate(chunkIndex);
 
-        mongoTemplate.updateFirst(query, update, TrainingStatus.class);
+        long start = System.nanoTime();
+        TrainingStatus status = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                TrainingStatus.class);
+        metrics.record("mongo-update", trainingId, chunkIndex, System.nanoTime() - start);
+        if (status == null) {
+            logger.warn("No status recorded for trainingId: {}, progress not updated", trainingId);
+            return;
+        }
+        logger.info("Updated progress for trainingId: {} to {} ({}/{} chunks, {})", trainingId, status.getProgress(),
+                status.getCompletedChunks(), status.getTotalChunks(), status.getStatus());
 
-        TrainingStatus status = mongoTemplate.findOne(query, TrainingStatus.class);
-        if (status != null && status.getProgress() >= 100) {
-            update.set("status", "COMPLETED");
-            mongoTemplate.updateFirst(query, update, TrainingStatus.class);
-            logger.info("Training completed for trainingId: {}", trainingId);
-        } else {
-            logger.info("Updated progress for trainingId: {} to {}", trainingId, status != null ? status.getProgress() : 0);
+        // Watchers on the master are fed from this topic instead of polling MongoDB
+        ProgressEvent event = new ProgressEvent(trainingId, status.getStatus(), status.getProgress(),
+                status.getTotalChunks(), status.getCompletedChunks(), chunkIndex);
+        try {
+            kafkaTemplate.send("training-progress", trainingId, objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize progress event", e);
         }
     }
+
+    /**
+     * One atomic pipeline update: record the chunk in the done set (a redelivered chunk is a no-op),
+     * derive the counter from the set, then progress and state from the counter.
+     */
+    static AggregationUpdate progressUpdate(int chunkIndex) {
+        return AggregationUpdate.update()
+                .set("doneChunks").toValue(expression(new Document("$setUnion", List.of(
+                        new Document("$ifNull", Arrays.asList("$doneChunks", List.of())), List.of(chunkIndex)))))
+                .set("completedChunks").toValue(expression(new Document("$size", "$doneChunks")))
+                .set(SetOperation.builder()
+                        .set("progress").toValue(expression(new Document("$cond", Arrays.asList(
+                                new Document("$gt", Arrays.asList("$totalChunks", 0)),
+                                new Document("$min", Arrays.asList(100, new Document("$floor", new Document("$divide",
+                                        Arrays.asList(new Document("$multiply", Arrays.asList("$completedChunks", 100)),
+                                                "$totalChunks"))))),
+                                "$progress"))))
+                        // Every chunk trained, the master flips MERGING to COMPLETED once the merged model is stored
+                        .and().set("status").toValue(expression(new Document("$cond", Arrays.asList(
+                                new Document("$and", Arrays.asList(
+                                        new Document("$eq", Arrays.asList("$status", "RUNNING")),
+                                        new Document("$gt", Arrays.asList("$totalChunks", 0)),
+                                        new Document("$gte", Arrays.asList("$completedChunks", "$totalChunks")))),
+                                "MERGING", "$status")))));
+    }
+
+    private static AggregationExpression expression(Document document) {
+        return context -> document;
+    }
 }
\ No newline at end of file
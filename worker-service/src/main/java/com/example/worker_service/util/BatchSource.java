@@ -0,0 +1,50 @@
+package com.example.worker_service.util;
+
+import org.nd4j.linalg.dataset.DataSet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Sequential producer of minibatch work for {@link PrefetchingDataSetIterator}. Reading is done
+ * in order on the prefetch thread; the returned task does the expensive part (parsing and
+ * minibatch assembly) and may run on any parser thread.
+ */
+public interface BatchSource extends Closeable {
+
+    /**
+     * Returns the work that builds the next minibatch, or null once the epoch is exhausted.
+     */
+    Callable<DataSet> nextBatch() throws IOException;
+
+    /**
+     * Rewinds to the start of the dataset. Never called while a prefetch thread is reading.
+     */
+    void reset() throws IOException;
+
+    int inputColumns();
+
+    int totalOutcomes();
+
+    int batch();
+
+    List<String> getLabels();
+
+    /**
+     * Rows skipped so far because they didn't match the CSV schema.
+     */
+    long getMalformedRows();
+
+    /**
+     * Fetch, parse and assembly time spent on this source so far.
+     */
+    default LoadStats getLoadStats() {
+        return new LoadStats();
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
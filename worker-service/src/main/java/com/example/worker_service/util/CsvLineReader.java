@@ -0,0 +1,101 @@
+package com.example.worker_service.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Splits a byte stream into lines without decoding them into Strings. After {@link #nextLine()}
+ * the current line is {@code buffer()[lineStart(), lineEnd())}, without its line terminator;
+ * the span is only valid until the next call.
+ */
+public class CsvLineReader implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+    private int position;
+    private int scanned; // Bytes in [position, scanned) are known to contain no newline
+    private int limit;
+    private boolean eof;
+    private int lineStart;
+    private int lineEnd;
+
+    public CsvLineReader(InputStream in) {
+        this.in = in;
+    }
+
+    public boolean nextLine() throws IOException {
+        while (true) {
+            for (int i = scanned; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    setLine(position, i);
+                    position = i + 1;
+                    scanned = position;
+                    return true;
+                }
+            }
+            scanned = limit;
+            if (eof) {
+                if (position < limit) {
+                    setLine(position, limit); // Last line without a trailing newline
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+            fill();
+        }
+    }
+
+    private void setLine(int start, int end) {
+        lineStart = start;
+        lineEnd = end > start && buffer[end - 1] == '\r' ? end - 1 : end;
+    }
+
+    private void fill() throws IOException {
+        if (position > 0) {
+            // Move the partial line to the front so the buffer only grows for lines longer than itself
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            scanned -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int lineStart() {
+        return lineStart;
+    }
+
+    public int lineEnd() {
+        return lineEnd;
+    }
+
+    public boolean isBlankLine() {
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (buffer[i] != ' ' && buffer[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
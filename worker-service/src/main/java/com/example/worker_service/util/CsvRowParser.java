@@ -0,0 +1,189 @@
+package com.example.worker_service.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parses CSV rows straight from bytes into a float feature buffer, without splitting the line
+ * into Strings. Columns the schema doesn't use are skipped without being parsed. Rows that are
+ * short, non-numeric or carry a fractional or out-of-range label are counted and skipped instead
+ * of thrown.
+ * Safe to share between parser threads.
+ */
+public class CsvRowParser {
+    public static final int MALFORMED = -1;
+
+    private static final int SKIP = -1;
+    private static final int LABEL = -2;
+    private static final int MAX_FAST_DIGITS = 15; // Mantissas up to 15 digits are exact in a double
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final CsvSchema schema;
+    private final int[] columnTargets; // Feature slot, LABEL or SKIP for each column up to the last one used
+    private final LongAdder malformedRows = new LongAdder();
+
+    public CsvRowParser(CsvSchema schema) {
+        this.schema = schema;
+        int[] featureColumns = schema.getFeatureColumns();
+        int lastColumn = schema.getLabelColumn();
+        for (int column : featureColumns) {
+            lastColumn = Math.max(lastColumn, column);
+        }
+        columnTargets = new int[lastColumn + 1];
+        Arrays.fill(columnTargets, SKIP);
+        for (int slot = 0; slot < featureColumns.length; slot++) {
+            columnTargets[featureColumns[slot]] = slot;
+        }
+        columnTargets[schema.getLabelColumn()] = LABEL;
+    }
+
+    public CsvSchema getSchema() {
+        return schema;
+    }
+
+    public long getMalformedRows() {
+        return malformedRows.sum();
+    }
+
+    /**
+     * Parses the row in {@code line[start, end)} and writes its features to
+     * {@code features[featureOffset, featureOffset + numFeatures)}.
+     *
+     * @return the class label, or {@link #MALFORMED} if the row was rejected
+     */
+    public int parseRow(byte[] line, int start, int end, float[] features, int featureOffset) {
+        int label = MALFORMED;
+        int position = start;
+        for (int column = 0; column < columnTargets.length; column++) {
+            if (position > end) {
+                return malformed(); // Fewer columns than the schema needs
+            }
+            int fieldEnd = position;
+            while (fieldEnd < end && line[fieldEnd] != ',') {
+                fieldEnd++;
+            }
+            int target = columnTargets[column];
+            if (target != SKIP) {
+                float value = parseFloat(line, position, fieldEnd);
+                if (Float.isNaN(value)) {
+                    return malformed();
+                }
+                if (target == LABEL) {
+                    // A fractional label such as 1.7 is no class, truncating it would mislabel the row
+                    if (value != Math.rint(value) || value < 0 || value >= schema.getNumClasses()) {
+                        return malformed();
+                    }
+                    label = (int) value;
+                } else {
+                    features[featureOffset + target] = value;
+                }
+            }
+            position = fieldEnd + 1;
+        }
+        return label;
+    }
+
+    private int malformed() {
+        malformedRows.increment();
+        return MALFORMED;
+    }
+
+    /**
+     * Decimal float parser for plain and scientific notation. Mantissas of up to 15 digits with
+     * exponents within 10^22 are exact in double arithmetic; anything else falls back to the JDK parser.
+     *
+     * @return the parsed value, or NaN if the field isn't a number
+     */
+    static float parseFloat(byte[] bytes, int start, int end) {
+        while (start < end && bytes[start] == ' ') {
+            start++;
+        }
+        while (end > start && bytes[end - 1] == ' ') {
+            end--;
+        }
+        if (start == end) {
+            return Float.NaN;
+        }
+
+        int position = start;
+        boolean negative = false;
+        if (bytes[position] == '-' || bytes[position] == '+') {
+            negative = bytes[position] == '-';
+            position++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for (; position < end; position++) {
+            byte b = bytes[position];
+            if (b >= '0' && b <= '9') {
+                seenDigit = true;
+                if (mantissa == 0 && b == '0') {
+                    if (seenPoint) {
+                        exponent--; // Leading zeros of a fraction only move the exponent
+                    }
+                    continue;
+                }
+                if (digits == MAX_FAST_DIGITS) {
+                    return slowParse(bytes, start, end);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (seenPoint) {
+                    exponent--;
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else if ((b == 'e' || b == 'E') && seenDigit) {
+                position++;
+                boolean negativeExponent = false;
+                if (position < end && (bytes[position] == '-' || bytes[position] == '+')) {
+                    negativeExponent = bytes[position] == '-';
+                    position++;
+                }
+                if (position == end) {
+                    return Float.NaN;
+                }
+                int explicit = 0;
+                for (; position < end; position++) {
+                    byte e = bytes[position];
+                    if (e < '0' || e > '9') {
+                        return Float.NaN;
+                    }
+                    if (explicit < 10_000) {
+                        explicit = explicit * 10 + (e - '0'); // Anything this large goes to the slow path anyway
+                    }
+                }
+                exponent += negativeExponent ? -explicit : explicit;
+                break;
+            } else {
+                return Float.NaN;
+            }
+        }
+        if (!seenDigit) {
+            return Float.NaN;
+        }
+        if (mantissa == 0) {
+            return negative ? -0.0f : 0.0f;
+        }
+        if (exponent < -22 || exponent > 22) {
+            return slowParse(bytes, start, end);
+        }
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return (float) (negative ? -value : value);
+    }
+
+    private static float slowParse(byte[] bytes, int start, int end) {
+        try {
+            return Float.parseFloat(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+}
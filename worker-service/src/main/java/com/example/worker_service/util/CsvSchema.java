@@ -0,0 +1,117 @@
+package com.example.worker_service.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Which CSV columns feed the network: numeric feature columns and one integer class label.
+ */
+public class CsvSchema {
+    private final int[] featureColumns;
+    private final int labelColumn;
+    private final int numClasses;
+    private final List<String> labelNames;
+
+    public CsvSchema(int[] featureColumns, int labelColumn, int numClasses, List<String> labelNames) {
+        if (labelNames.size() != numClasses) {
+            throw new IllegalArgumentException("Expected " + numClasses + " label names but got " + labelNames);
+        }
+        this.featureColumns = featureColumns.clone();
+        this.labelColumn = labelColumn;
+        this.numClasses = numClasses;
+        this.labelNames = List.copyOf(labelNames);
+    }
+
+    /**
+     * The original dataset layout: daily_usage_gb, peak_usage_gb, label (0 = Low, 1 = Medium, 2 = High).
+     */
+    public static CsvSchema defaults() {
+        return new CsvSchema(new int[]{0, 1}, 2, 3, List.of("Low", "Medium", "High"));
+    }
+
+    /**
+     * Uses every column of the header except the label as a feature. A blank label column
+     * name selects the last column.
+     */
+    public static CsvSchema fromHeader(String header, String labelColumnName, int numClasses, List<String> labelNames) {
+        return fromHeader(header, labelColumnName, null, numClasses, labelNames);
+    }
+
+    /**
+     * Resolves label and feature column names against the header. A blank label column name
+     * selects the last column, null feature column names select every column except the label.
+     */
+    public static CsvSchema fromHeader(String header, String labelColumnName, List<String> featureColumnNames,
+                                       int numClasses, List<String> labelNames) {
+        if (header == null || header.isBlank()) {
+            return defaults();
+        }
+        String[] columns = header.split(",");
+        int labelColumn = columns.length - 1;
+        if (labelColumnName != null && !labelColumnName.isBlank()) {
+            labelColumn = indexOf(columns, labelColumnName, header);
+        }
+        int[] featureColumns;
+        if (featureColumnNames != null) {
+            featureColumns = new int[featureColumnNames.size()];
+            for (int i = 0; i < featureColumns.length; i++) {
+                featureColumns[i] = indexOf(columns, featureColumnNames.get(i), header);
+                if (featureColumns[i] == labelColumn) {
+                    throw new IllegalArgumentException("Column '" + featureColumnNames.get(i) + "' is both a feature and the label");
+                }
+            }
+        } else {
+            featureColumns = new int[columns.length - 1];
+            for (int column = 0, i = 0; column < columns.length; column++) {
+                if (column != labelColumn) {
+                    featureColumns[i++] = column;
+                }
+            }
+        }
+        return new CsvSchema(featureColumns, labelColumn, numClasses, labelNames(numClasses, labelNames));
+    }
+
+    private static int indexOf(String[] columns, String name, String header) {
+        int found = -1;
+        for (int column = 0; column < columns.length; column++) {
+            if (columns[column].strip().equals(name.strip())) {
+                found = column;
+            }
+        }
+        if (found < 0) {
+            throw new IllegalArgumentException("Column '" + name + "' not in header: " + header);
+        }
+        return found;
+    }
+
+    private static List<String> labelNames(int numClasses, List<String> configured) {
+        if (configured != null && configured.size() == numClasses) {
+            return configured;
+        }
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < numClasses; i++) {
+            names.add(String.valueOf(i));
+        }
+        return names;
+    }
+
+    public int[] getFeatureColumns() {
+        return featureColumns.clone();
+    }
+
+    public int numFeatures() {
+        return featureColumns.length;
+    }
+
+    public int getLabelColumn() {
+        return labelColumn;
+    }
+
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    public List<String> getLabelNames() {
+        return labelNames;
+    }
+}
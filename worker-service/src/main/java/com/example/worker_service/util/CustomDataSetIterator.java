@@ -5,81 +5,241 @@ import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.factory.Nd4j;
-import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.regions.Region;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import com.example.worker_service.model.ChunkDescriptor;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Loads a dataset chunk into one contiguous feature matrix and a one-hot label matrix.
+ * Minibatches are row-range views of those two arrays, so {@link #next(int)} copies no data
+ * and allocates nothing per row.
+ */
 public class CustomDataSetIterator implements DataSetIterator {
-    private final String s3Url;
-    private final S3Client s3Client;
-    private final List<float[]> features;
-    private final List<float[]> labels;
+    private static final int INITIAL_ROWS = 1024;
+    private static final int MAGIC = 0x43484E4B; // "CHNK"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 28;  // magic, version, rows, inputColumns, totalOutcomes, malformedRows
+    private static final int WRITE_BLOCK_BYTES = 1 << 20;
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8; // Largest array the JVM reliably allocates
+
+    private final INDArray features; // [rows, inputColumns]
+    private final INDArray labels;   // [rows, totalOutcomes], one-hot
+    private final int rows;
     private int cursor = 0;
     private final int batchSize;
     private final int inputColumns;
     private final int totalOutcomes;
+    private final List<String> labelNames;
+    private final long malformedRows;
+    private final LoadStats loadStats = new LoadStats();
+
+    // Parse buffers, only live while the chunk is loading
+    private float[] featureBuffer;
+    private int[] labelBuffer;
+    private int loadedRows;
 
-    public CustomDataSetIterator(String s3Url, int batchSize) throws IOException {
-        this.s3Url = s3Url; // e.g., "s3://aadi-dataset-bucket-2025/test.csv"
+    public CustomDataSetIterator(S3Client s3Client, String s3Url, int batchSize) throws IOException {
+        // e.g., "s3://aadi-dataset-bucket-2025/test.csv", read as a whole object including its header
+        this(TimedInputStream.getObject(s3Client, GetObjectRequest.builder()
+                .bucket(s3Url.replace("s3://", "").split("/", 2)[0]) // "aadi-dataset-bucket-2025"
+                .key(s3Url.replace("s3://", "").split("/", 2)[1])    // "test.csv"
+                .build()), true, CsvSchema.defaults(), batchSize);
+    }
+
+    public CustomDataSetIterator(S3Client s3Client, ChunkDescriptor chunk, CsvSchema schema, int batchSize) throws IOException {
+        // Ranged read of the original dataset, the range never includes the header row
+        this(TimedInputStream.getObject(s3Client, GetObjectRequest.builder()
+                .bucket(chunk.getBucket())
+                .key(chunk.getKey())
+                .range("bytes=" + chunk.getStartByte() + "-" + (chunk.getEndByte() - 1))
+                .ifMatch(chunk.getEtag()) // Fails rather than mixing rows of a replaced object into the run
+                .build()), false, schema, batchSize);
+    }
+
+    public CustomDataSetIterator(InputStream csv, boolean skipHeader, CsvSchema schema, int batchSize) throws IOException {
         this.batchSize = batchSize;
-        this.s3Client = S3Client.builder()
-                .region(Region.AP_SOUTH_1)
-                .build();
-        this.features = new ArrayList<>();
-        this.labels = new ArrayList<>();
+        this.inputColumns = schema.numFeatures();
+        this.totalOutcomes = schema.getNumClasses();
+        this.labelNames = schema.getLabelNames();
+
+        long start = System.nanoTime();
+        TimedInputStream in = csv instanceof TimedInputStream timed ? timed : new TimedInputStream(csv);
+        long openNanos = in.getNanos(); // Spent before this constructor ran
+        this.featureBuffer = new float[cells(INITIAL_ROWS, inputColumns)];
+        this.labelBuffer = new int[INITIAL_ROWS];
+        CsvRowParser parser = new CsvRowParser(schema);
+        loadData(in, skipHeader, parser);
+        this.rows = loadedRows;
+        this.malformedRows = parser.getMalformedRows();
 
-        loadDataFromS3();
+        // One bulk copy of each column block into ND4J, the parse buffers are dropped afterwards
+        this.features = Nd4j.create(Arrays.copyOf(featureBuffer, cells(rows, inputColumns)), new long[]{rows, inputColumns}, 'c');
+        this.labels = oneHot(labelBuffer, rows, totalOutcomes);
+        this.featureBuffer = null;
+        this.labelBuffer = null;
+        // Reading and parsing interleave, whatever was not spent blocked on the stream was parsing
+        loadStats.addFetch(in.getNanos(), in.getBytes());
+        loadStats.addParse(System.nanoTime() - start - (in.getNanos() - openNanos));
+        loadStats.addMalformedRows(malformedRows);
+    }
 
-        this.inputColumns = 2; // daily_usage_gb, peak_usage_gb
-        this.totalOutcomes = 3; // 0 = Low, 1 = Medium, 2 = High
+    private CustomDataSetIterator(float[] features, int[] labels, int rows, int inputColumns, int totalOutcomes,
+                                  long malformedRows, List<String> labelNames, int batchSize) {
+        this.batchSize = batchSize;
+        this.inputColumns = inputColumns;
+        this.totalOutcomes = totalOutcomes;
+        this.labelNames = labelNames;
+        this.rows = rows;
+        this.malformedRows = malformedRows;
+        loadStats.addMalformedRows(malformedRows); // Counted when the chunk was first parsed
+        this.features = Nd4j.create(features, new long[]{rows, inputColumns}, 'c');
+        this.labels = oneHot(labels, rows, totalOutcomes);
     }
 
-    private void loadDataFromS3() throws IOException {
-        String[] parts = s3Url.replace("s3://", "").split("/", 2);
-        String bucket = parts[0]; // "aadi-dataset-bucket-2025"
-        String key = parts[1];    // "test.csv"
+    private static INDArray oneHot(int[] labels, int rows, int totalOutcomes) {
+        float[] oneHot = new float[Math.multiplyExact(rows, totalOutcomes)]; // Bounded by the features, which are checked on load
+        for (int i = 0; i < rows; i++) {
+            oneHot[i * totalOutcomes + labels[i]] = 1.0f;
+        }
+        return Nd4j.create(oneHot, new long[]{rows, totalOutcomes}, 'c');
+    }
 
-        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
-                .bucket(bucket)
-                .key(key)
-                .build();
-        ResponseInputStream<GetObjectResponse> s3Object = s3Client.getObject(getObjectRequest);
+    /**
+     * Writes the parsed chunk as a feature block and a label block of little-endian binary,
+     * readable by {@link #load(Path, List, int)} without any CSV parsing.
+     */
+    public void save(Path file) throws IOException {
+        float[] featureData = features.data().asFloat();
+        int[] labelData = rows > 0 ? labels.argMax(1).toIntVector() : new int[0];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(rows).putInt(inputColumns).putInt(totalOutcomes)
+                    .putLong(malformedRows).flip();
+            writeFully(channel, header);
+            ByteBuffer block = ByteBuffer.allocate(WRITE_BLOCK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < featureData.length; ) {
+                int count = Math.min(WRITE_BLOCK_BYTES / Float.BYTES, featureData.length - i);
+                block.clear();
+                block.asFloatBuffer().put(featureData, i, count);
+                block.limit(count * Float.BYTES);
+                writeFully(channel, block);
+                i += count;
+            }
+            for (int i = 0; i < labelData.length; ) {
+                int count = Math.min(WRITE_BLOCK_BYTES / Integer.BYTES, labelData.length - i);
+                block.clear();
+                block.asIntBuffer().put(labelData, i, count);
+                block.limit(count * Integer.BYTES);
+                writeFully(channel, block);
+                i += count;
+            }
+        }
+    }
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(s3Object))) {
-            String line;
-            boolean firstLine = true;
-            while ((line = reader.readLine()) != null) {
+    /**
+     * Memory-maps a chunk written by {@link #save(Path)} and copies its blocks straight into ND4J.
+     */
+    public static CustomDataSetIterator load(Path file, List<String> labelNames, int batchSize) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.size() < HEADER_BYTES || mapped.getInt() != MAGIC || mapped.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a cached chunk: " + file);
+            }
+            int rows = mapped.getInt();
+            int inputColumns = mapped.getInt();
+            int totalOutcomes = mapped.getInt();
+            long malformedRows = mapped.getLong();
+            if (rows < 0 || inputColumns < 0
+                    || channel.size() != HEADER_BYTES + (long) rows * inputColumns * Float.BYTES + (long) rows * Integer.BYTES) {
+                throw new IOException("Truncated cached chunk: " + file);
+            }
+            float[] featureData = new float[cells(rows, inputColumns)];
+            mapped.asFloatBuffer().get(featureData);
+            // A mapping is at most 2 GiB, so once the size matched every offset fits an int
+            mapped.position(HEADER_BYTES + featureData.length * Float.BYTES);
+            int[] labelData = new int[rows];
+            mapped.asIntBuffer().get(labelData);
+            CustomDataSetIterator iterator = new CustomDataSetIterator(featureData, labelData, rows, inputColumns,
+                    totalOutcomes, malformedRows, labelNames, batchSize);
+            iterator.loadStats.addCacheLoad(System.nanoTime() - start);
+            return iterator;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void loadData(InputStream csv, boolean skipHeader, CsvRowParser parser) throws IOException {
+        try (CsvLineReader reader = new CsvLineReader(csv)) {
+            boolean firstLine = skipHeader;
+            while (reader.nextLine()) {
                 if (firstLine) {
                     firstLine = false; // Skip header
                     continue;
                 }
-                String[] values = line.split(",");
-                float[] featureArray = new float[2];
-                featureArray[0] = Float.parseFloat(values[0]); // daily_usage_gb
-                featureArray[1] = Float.parseFloat(values[1]); // peak_usage_gb
+                if (reader.isBlankLine()) {
+                    continue; // Trailing newline at the end of a range
+                }
+                ensureCapacity(loadedRows + 1);
+                // Parsed in place from the read buffer, a malformed row is counted and overwritten by the next one
+                int label = parser.parseRow(reader.buffer(), reader.lineStart(), reader.lineEnd(),
+                        featureBuffer, loadedRows * inputColumns);
+                if (label != CsvRowParser.MALFORMED) {
+                    labelBuffer[loadedRows++] = label;
+                }
+            }
+        }
+    }
 
-                float[] labelArray = new float[1];
-                labelArray[0] = Float.parseFloat(values[2]); // label
+    private void ensureCapacity(int requiredRows) throws IOException {
+        if (requiredRows > labelBuffer.length) {
+            cells(requiredRows, inputColumns); // Fails before growing past what one array holds
+            // Doubles while that still fits, then grows to exactly what the rows need
+            long doubled = Math.max(requiredRows, labelBuffer.length * 2L);
+            int newRows = (int) Math.max(requiredRows, Math.min(doubled, MAX_ARRAY_LENGTH / Math.max(1, inputColumns)));
+            featureBuffer = Arrays.copyOf(featureBuffer, cells(newRows, inputColumns));
+            labelBuffer = Arrays.copyOf(labelBuffer, newRows);
+        }
+    }
 
-                features.add(featureArray);
-                labels.add(labelArray);
-            }
+    /**
+     * Number of feature values in {@code rows} rows, all of which live in one float array.
+     *
+     * @throws IOException if the chunk holds more values than an array can
+     */
+    static int cells(long rows, int inputColumns) throws IOException {
+        long cells = rows * inputColumns; // At most 2^31 * 2^31, no long overflow
+        if (cells > MAX_ARRAY_LENGTH) {
+            throw new IOException("Chunk too large: " + rows + " rows of " + inputColumns + " features are "
+                    + cells + " values, more than the " + MAX_ARRAY_LENGTH
+                    + " one chunk can hold, lower training.chunk.target-bytes");
         }
+        return (int) cells;
     }
 
     @Override
     public DataSet next(int num) {
+        long start = System.nanoTime();
         int from = cursor;
-        int to = Math.min(from + num, features.size());
+        int to = Math.min(from + num, rows);
         cursor = to;
 
         int numExamples = to - from;
@@ -87,18 +247,30 @@ public class CustomDataSetIterator implements DataSetIterator {
             return null;
         }
 
-        INDArray featureArray = Nd4j.create(numExamples, inputColumns);
-        INDArray labelArray = Nd4j.create(numExamples, totalOutcomes);
+        // Row ranges of a 'c' ordered matrix are contiguous, so these are views without copies
+        INDArray featureArray = features.get(NDArrayIndex.interval(from, to), NDArrayIndex.all());
+        INDArray labelArray = labels.get(NDArrayIndex.interval(from, to), NDArrayIndex.all());
+        DataSet batch = new DataSet(featureArray, labelArray);
+        loadStats.addAssemble(System.nanoTime() - start);
+        return batch;
+    }
 
-        for (int i = 0; i < numExamples; i++) {
-            float[] feature = features.get(from + i);
-            float label = labels.get(from + i)[0];
+    /**
+     * Number of rows loaded from the chunk.
+     */
+    public int numExamples() {
+        return rows;
+    }
 
-            featureArray.putRow(i, Nd4j.create(feature));
-            labelArray.putScalar(i, (int) label, 1.0); // One-hot encoding
-        }
+    /**
+     * Number of rows skipped because they didn't match the schema.
+     */
+    public long getMalformedRows() {
+        return malformedRows;
+    }
 
-        return new DataSet(featureArray, labelArray);
+    public LoadStats getLoadStats() {
+        return loadStats;
     }
 
     @Override
@@ -118,7 +290,7 @@ public class CustomDataSetIterator implements DataSetIterator {
 
     @Override
     public boolean asyncSupported() {
-        return false;
+        return true; // Batches are independent views, safe to take on a prefetch thread
     }
 
     @Override
@@ -142,12 +314,12 @@ public class CustomDataSetIterator implements DataSetIterator {
 
     @Override
     public List<String> getLabels() {
-        return List.of("Low", "Medium", "High");
+        return labelNames;
     }
 
     @Override
     public boolean hasNext() {
-        return cursor < features.size();
+        return cursor < rows;
     }
 
     @Override
@@ -0,0 +1,70 @@
+package com.example.worker_service.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Where the time to get a chunk into minibatches went: reading it from S3, parsing CSV rows,
+ * loading a parsed chunk from the local cache and slicing minibatches, plus the rows the parser
+ * rejected. Parser threads add to these concurrently, so parse time of a streamed chunk may
+ * exceed its wall time.
+ */
+public class LoadStats {
+    private final AtomicLong fetchNanos = new AtomicLong();
+    private final AtomicLong fetchedBytes = new AtomicLong();
+    private final AtomicLong parseNanos = new AtomicLong();
+    private final AtomicLong cacheLoadNanos = new AtomicLong();
+    private final AtomicLong assembleNanos = new AtomicLong();
+    private final AtomicLong malformedRows = new AtomicLong();
+
+    void addFetch(long nanos, long bytes) {
+        fetchNanos.addAndGet(nanos);
+        fetchedBytes.addAndGet(bytes);
+    }
+
+    void addParse(long nanos) {
+        parseNanos.addAndGet(nanos);
+    }
+
+    void addCacheLoad(long nanos) {
+        cacheLoadNanos.addAndGet(nanos);
+    }
+
+    void addAssemble(long nanos) {
+        assembleNanos.addAndGet(nanos);
+    }
+
+    void addMalformedRows(long rows) {
+        malformedRows.addAndGet(rows);
+    }
+
+    public long getFetchNanos() {
+        return fetchNanos.get();
+    }
+
+    public long getFetchedBytes() {
+        return fetchedBytes.get();
+    }
+
+    public long getParseNanos() {
+        return parseNanos.get();
+    }
+
+    public long getCacheLoadNanos() {
+        return cacheLoadNanos.get();
+    }
+
+    public long getAssembleNanos() {
+        return assembleNanos.get();
+    }
+
+    public long getMalformedRows() {
+        return malformedRows.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("fetch %.1f ms (%d bytes), parse %.1f ms (%d malformed rows), cache load %.1f ms, assemble %.1f ms",
+                getFetchNanos() / 1_000_000.0, getFetchedBytes(), getParseNanos() / 1_000_000.0, getMalformedRows(),
+                getCacheLoadNanos() / 1_000_000.0, getAssembleNanos() / 1_000_000.0);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.worker_service.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters kept by {@link PrefetchingDataSetIterator} on the training thread. A high starved
+ * ratio means training waited on data (I/O or parse bound); a ratio near zero means the
+ * prefetch queue stayed ahead and the worker is compute bound.
+ */
+public class PrefetchStats {
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong examples = new AtomicLong();
+    private final AtomicLong starvedBatches = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    void record(boolean starved, long waitedNanos, int batchExamples) {
+        batches.incrementAndGet();
+        examples.addAndGet(batchExamples);
+        if (starved) {
+            starvedBatches.incrementAndGet();
+            waitNanos.addAndGet(waitedNanos);
+        }
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getExamples() {
+        return examples.get();
+    }
+
+    public long getStarvedBatches() {
+        return starvedBatches.get();
+    }
+
+    public long getWaitNanos() {
+        return waitNanos.get();
+    }
+
+    public double starvedRatio() {
+        long total = batches.get();
+        return total == 0 ? 0.0 : (double) starvedBatches.get() / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d batches, %d starved (%.1f%%), %.1f ms waiting", getBatches(), getStarvedBatches(),
+                starvedRatio() * 100, getWaitNanos() / 1_000_000.0);
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.worker_service.util;
+
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assembles the next minibatches while the current one trains. A prefetch thread reads the
+ * {@link BatchSource} in order and hands each batch to a pool of parser threads; the futures
+ * go into a bounded queue in submission order, so batches come out in dataset order no matter
+ * how many parser threads run.
+ */
+public class PrefetchingDataSetIterator implements DataSetIterator, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrefetchingDataSetIterator.class);
+    private static final Future<DataSet> END = CompletableFuture.completedFuture(null);
+    private static final long OFFER_TIMEOUT_MS = 100;
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    private final BatchSource source;
+    private final BlockingQueue<Future<DataSet>> queue;
+    private final ExecutorService parsers;
+    private final PrefetchStats stats = new PrefetchStats();
+    private final String name;
+
+    private Thread prefetcher;
+    private volatile boolean cancelled;
+    private DataSet peeked;
+    private boolean exhausted;
+
+    public PrefetchingDataSetIterator(BatchSource source, int queueDepth, int parserThreads) {
+        this.source = source;
+        this.queue = new ArrayBlockingQueue<>(queueDepth);
+        this.name = "prefetch-" + instances.incrementAndGet();
+        AtomicInteger parserCount = new AtomicInteger();
+        this.parsers = Executors.newFixedThreadPool(parserThreads, runnable -> {
+            Thread thread = new Thread(runnable, name + "-parser-" + parserCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        startPrefetcher();
+    }
+
+    /**
+     * Prefetches from an in-memory iterator. Its batches are read on the prefetch thread, so
+     * parser threads would have nothing left to do.
+     */
+    public PrefetchingDataSetIterator(DataSetIterator source, int queueDepth) {
+        this(new IteratorBatchSource(source), queueDepth, 1);
+    }
+
+    public PrefetchStats getStats() {
+        return stats;
+    }
+
+    public long getMalformedRows() {
+        return source.getMalformedRows();
+    }
+
+    public LoadStats getLoadStats() {
+        return source.getLoadStats();
+    }
+
+    private void startPrefetcher() {
+        prefetcher = new Thread(this::prefetch, name);
+        prefetcher.setDaemon(true);
+        prefetcher.start();
+    }
+
+    private void prefetch() {
+        try {
+            Callable<DataSet> batch;
+            while (!cancelled && (batch = source.nextBatch()) != null) {
+                if (!enqueue(parsers.submit(batch))) {
+                    return;
+                }
+            }
+            enqueue(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Prefetching failed in {}", name, e);
+            try {
+                enqueue(CompletableFuture.failedFuture(e));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean enqueue(Future<DataSet> batch) throws InterruptedException {
+        while (!cancelled) {
+            if (queue.offer(batch, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        batch.cancel(false);
+        return false;
+    }
+
+    private void stopPrefetcher() {
+        cancelled = true;
+        try {
+            prefetcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Future<DataSet> pending : queue) {
+            pending.cancel(false);
+        }
+        queue.clear();
+        peeked = null;
+        exhausted = false;
+        cancelled = false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (peeked != null) {
+            return true;
+        }
+        if (exhausted) {
+            return false;
+        }
+        long start = System.nanoTime();
+        Future<DataSet> head = queue.peek();
+        boolean starved = head == null || !head.isDone(); // Training is about to wait on data
+        try {
+            do {
+                peeked = queue.take().get();
+            } while (peeked != null && peeked.isEmpty()); // A batch of only malformed rows
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the next minibatch", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to prepare minibatch", e.getCause());
+        }
+        if (peeked == null) {
+            exhausted = true;
+            return false;
+        }
+        stats.record(starved, System.nanoTime() - start, peeked.numExamples());
+        return true;
+    }
+
+    @Override
+    public DataSet next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        DataSet next = peeked;
+        peeked = null;
+        return next;
+    }
+
+    /**
+     * Serves {@code num} examples, fewer only at the end of the data. Prefetched minibatches are
+     * joined until there are enough, what is left of the last one is served first next time.
+     */
+    @Override
+    public DataSet next(int num) {
+        if (num <= 0) {
+            throw new IllegalArgumentException("Minibatch size must be positive: " + num);
+        }
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<DataSet> parts = new ArrayList<>();
+        int examples = 0;
+        while (examples < num && hasNext()) {
+            DataSet part = next();
+            parts.add(part);
+            examples += part.numExamples();
+        }
+        DataSet joined = parts.size() == 1 ? parts.get(0) : DataSet.merge(parts);
+        if (examples <= num) {
+            return joined;
+        }
+        peeked = rows(joined, num, examples); // Picked up by hasNext() before the queue
+        return rows(joined, 0, num);
+    }
+
+    private static DataSet rows(DataSet data, int from, int to) {
+        return new DataSet(data.getFeatures().get(NDArrayIndex.interval(from, to), NDArrayIndex.all()),
+                data.getLabels().get(NDArrayIndex.interval(from, to), NDArrayIndex.all()));
+    }
+
+    /**
+     * Drops minibatches without handing them to training, to resume mid-epoch from a checkpoint.
+     *
+     * @return the number of minibatches actually skipped
+     */
+    public int skip(int batches) {
+        int skipped = 0;
+        while (skipped < batches && hasNext()) {
+            next();
+            skipped++;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int inputColumns() {
+        return source.inputColumns();
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return source.totalOutcomes();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return false; // Already prefetching, DL4J must not wrap it again
+    }
+
+    @Override
+    public void reset() {
+        stopPrefetcher();
+        try {
+            source.reset();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to reset batch source", e);
+        }
+        startPrefetcher();
+    }
+
+    @Override
+    public int batch() {
+        return source.batch();
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return null;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return source.getLabels();
+    }
+
+    @Override
+    public void close() throws IOException {
+        stopPrefetcher();
+        parsers.shutdownNow();
+        source.close();
+    }
+
+    /**
+     * Adapts a plain iterator; each batch is taken on the prefetch thread and handed over as is.
+     */
+    private static class IteratorBatchSource implements BatchSource {
+        private final DataSetIterator iterator;
+
+        IteratorBatchSource(DataSetIterator iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public Callable<DataSet> nextBatch() {
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            DataSet batch = iterator.next();
+            return () -> batch;
+        }
+
+        @Override
+        public void reset() {
+            iterator.reset();
+        }
+
+        @Override
+        public int inputColumns() {
+            return iterator.inputColumns();
+        }
+
+        @Override
+        public int totalOutcomes() {
+            return iterator.totalOutcomes();
+        }
+
+        @Override
+        public int batch() {
+            return iterator.batch();
+        }
+
+        @Override
+        public List<String> getLabels() {
+            return iterator.getLabels();
+        }
+
+        @Override
+        public long getMalformedRows() {
+            return iterator instanceof CustomDataSetIterator custom ? custom.getMalformedRows() : 0;
+        }
+
+        @Override
+        public LoadStats getLoadStats() {
+            return iterator instanceof CustomDataSetIterator custom ? custom.getLoadStats() : new LoadStats();
+        }
+    }
+}
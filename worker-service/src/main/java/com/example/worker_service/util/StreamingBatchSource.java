@@ -0,0 +1,234 @@
+package com.example.worker_service.util;
+
+import com.example.worker_service.model.ChunkDescriptor;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Out-of-core source for chunks that should not be held in memory. Rows are read straight off
+ * the download and parsed batch by batch, so training starts with the first batch instead of
+ * after the whole chunk. The downloaded bytes are spilled to a local file on the way through,
+ * and every {@link #reset()} replays the next epoch from that file.
+ */
+public class StreamingBatchSource implements BatchSource {
+
+    private final boolean skipHeader;
+    private final Path spillFile;
+    private final int batchSize;
+    private final int inputColumns;
+    private final int totalOutcomes;
+    private final CsvRowParser parser;
+    private final LoadStats loadStats = new LoadStats();
+
+    private TimedInputStream source; // Remote stream, only read during the first epoch
+    private SpillingInputStream spilling;
+    private CsvLineReader reader;
+    private boolean spillComplete;
+    private boolean firstLine;
+
+    public StreamingBatchSource(S3Client s3Client, ChunkDescriptor chunk, CsvSchema schema, int batchSize, Path spillDir) throws IOException {
+        // Ranged read of the original dataset, the range never includes the header row
+        this(TimedInputStream.getObject(s3Client, GetObjectRequest.builder()
+                        .bucket(chunk.getBucket())
+                        .key(chunk.getKey())
+                        .range("bytes=" + chunk.getStartByte() + "-" + (chunk.getEndByte() - 1))
+                        .ifMatch(chunk.getEtag())
+                        .build()), false, schema, batchSize, spillDir);
+    }
+
+    public StreamingBatchSource(InputStream csv, boolean skipHeader, CsvSchema schema, int batchSize, Path spillDir) throws IOException {
+        this.source = csv instanceof TimedInputStream timed ? timed : new TimedInputStream(csv);
+        this.skipHeader = skipHeader;
+        this.batchSize = batchSize;
+        this.inputColumns = schema.numFeatures();
+        this.totalOutcomes = schema.getNumClasses();
+        this.parser = new CsvRowParser(schema);
+        this.spillFile = Files.createTempFile(spillDir, "chunk-", ".csv");
+    }
+
+    private void open() throws IOException {
+        InputStream in;
+        if (!spillComplete) {
+            spilling = new SpillingInputStream(source, Files.newOutputStream(spillFile));
+            in = spilling;
+        } else {
+            in = Files.newInputStream(spillFile);
+        }
+        reader = new CsvLineReader(in);
+        firstLine = skipHeader;
+    }
+
+    @Override
+    public Callable<DataSet> nextBatch() throws IOException {
+        if (reader == null) {
+            open();
+        }
+        // Only the raw row bytes are copied here, parsing happens on a parser thread
+        byte[] block = new byte[batchSize * 32];
+        int[] rowEnds = new int[batchSize];
+        int length = 0;
+        int rows = 0;
+        while (rows < batchSize && reader.nextLine()) {
+            if (firstLine) {
+                firstLine = false; // Skip header
+                continue;
+            }
+            if (reader.isBlankLine()) {
+                continue; // Trailing newline at the end of a range
+            }
+            int lineLength = reader.lineEnd() - reader.lineStart();
+            if (length + lineLength > block.length) {
+                block = Arrays.copyOf(block, Math.max(block.length * 2, length + lineLength));
+            }
+            System.arraycopy(reader.buffer(), reader.lineStart(), block, length, lineLength);
+            length += lineLength;
+            rowEnds[rows++] = length;
+        }
+        if (rows == 0) {
+            closeReader();
+            spillComplete = true;
+            return null;
+        }
+        byte[] rowBytes = block;
+        int count = rows;
+        return () -> parse(rowBytes, rowEnds, count);
+    }
+
+    private DataSet parse(byte[] block, int[] rowEnds, int rows) {
+        long parseStart = System.nanoTime();
+        float[] featureBatch = new float[rows * inputColumns];
+        float[] labelBatch = new float[rows * totalOutcomes];
+        int valid = 0;
+        for (int i = 0, start = 0; i < rows; start = rowEnds[i++]) {
+            int label = parser.parseRow(block, start, rowEnds[i], featureBatch, valid * inputColumns);
+            if (label != CsvRowParser.MALFORMED) {
+                labelBatch[valid * totalOutcomes + label] = 1.0f; // One-hot label
+                valid++;
+            }
+        }
+        long parsed = System.nanoTime();
+        loadStats.addParse(parsed - parseStart);
+        loadStats.addMalformedRows(rows - valid);
+        if (valid == 0) {
+            return new DataSet(); // Every row was malformed, skipped by the prefetching iterator
+        }
+        if (valid < rows) {
+            featureBatch = Arrays.copyOf(featureBatch, valid * inputColumns);
+            labelBatch = Arrays.copyOf(labelBatch, valid * totalOutcomes);
+        }
+        DataSet batch = new DataSet(
+                Nd4j.create(featureBatch, new long[]{valid, inputColumns}, 'c'),
+                Nd4j.create(labelBatch, new long[]{valid, totalOutcomes}, 'c'));
+        loadStats.addAssemble(System.nanoTime() - parsed);
+        return batch;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        if (reader != null && !spillComplete) {
+            // A reset mid-download still needs the full chunk on disk for the next epoch
+            spilling.transferTo(OutputStream.nullOutputStream());
+            spillComplete = true;
+        }
+        closeReader();
+    }
+
+    private void closeReader() throws IOException {
+        if (reader != null) {
+            if (source != null) {
+                loadStats.addFetch(source.getNanos(), source.getBytes());
+            }
+            reader.close();
+            reader = null;
+            spilling = null;
+            source = null;
+        }
+    }
+
+    @Override
+    public int inputColumns() {
+        return inputColumns;
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return totalOutcomes;
+    }
+
+    @Override
+    public int batch() {
+        return batchSize;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return parser.getSchema().getLabelNames();
+    }
+
+    @Override
+    public long getMalformedRows() {
+        return parser.getMalformedRows();
+    }
+
+    @Override
+    public LoadStats getLoadStats() {
+        return loadStats;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeReader();
+        Files.deleteIfExists(spillFile);
+    }
+
+    /**
+     * Copies every byte read from the remote stream into the spill file.
+     */
+    private static class SpillingInputStream extends FilterInputStream {
+        private final OutputStream spill;
+
+        SpillingInputStream(InputStream in, OutputStream spill) {
+            super(in);
+            this.spill = spill;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                spill.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                spill.write(buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                spill.close();
+            }
+        }
+    }
+}
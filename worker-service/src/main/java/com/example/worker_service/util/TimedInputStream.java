@@ -0,0 +1,62 @@
+package com.example.worker_service.util;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read and the time spent blocked in reads, which for an S3 body is the
+ * download time of the bytes consumed so far, excluding whatever the reader does in between.
+ */
+class TimedInputStream extends FilterInputStream {
+
+    private long nanos;
+    private long bytes;
+
+    TimedInputStream(InputStream in) {
+        super(in);
+    }
+
+    /**
+     * Opens an object and counts the request up to the response headers as read time.
+     */
+    static TimedInputStream getObject(S3Client s3Client, GetObjectRequest request) {
+        long start = System.nanoTime();
+        TimedInputStream in = new TimedInputStream(s3Client.getObject(request));
+        in.nanos = System.nanoTime() - start;
+        return in;
+    }
+
+    long getNanos() {
+        return nanos;
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        int b = super.read();
+        nanos += System.nanoTime() - start;
+        if (b >= 0) {
+            bytes++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        int read = super.read(buffer, offset, length);
+        nanos += System.nanoTime() - start;
+        if (read > 0) {
+            bytes += read;
+        }
+        return read;
+    }
+}
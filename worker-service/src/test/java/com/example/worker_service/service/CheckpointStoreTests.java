@@ -0,0 +1,116 @@
+package com.example.worker_service.service;
+
+import com.example.worker_service.model.ChunkDescriptor;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CheckpointStoreTests {
+
+	@TempDir
+	Path dir;
+
+	private final CheckpointStore store = new CheckpointStore();
+
+	private final ChunkDescriptor chunk = new ChunkDescriptor("run-1", "bucket", "data.csv", 0, 100, "a,b,label", 3, 8);
+
+	@BeforeEach
+	void setUp() throws Exception {
+		ReflectionTestUtils.setField(store, "dir", dir.toString());
+		ReflectionTestUtils.setField(store, "s3Bucket", "");
+		ReflectionTestUtils.setField(store, "maxAgeMs", 86_400_000L);
+		store.init();
+	}
+
+	private static MultiLayerNetwork trainedModel() {
+		MultiLayerNetwork model = new MultiLayerNetwork(new NeuralNetConfiguration.Builder()
+				.seed(7)
+				.updater(new Adam(0.01))
+				.list()
+				.layer(new DenseLayer.Builder().nIn(2).nOut(4).activation(Activation.RELU).build())
+				.layer(new OutputLayer.Builder().nIn(4).nOut(3).activation(Activation.SOFTMAX)
+						.lossFunction(LossFunctions.LossFunction.MCXENT).build())
+				.build());
+		model.init();
+		model.fit(new DataSet(Nd4j.rand(8, 2), Nd4j.eye(3).getRows(0, 1, 2, 0, 1, 2, 0, 1)));
+		return model;
+	}
+
+	@Test
+	void restoresParametersUpdaterStateAndCursor() throws Exception {
+		MultiLayerNetwork model = trainedModel();
+		store.save(chunk, model, 0, 42);
+
+		CheckpointStore.Checkpoint checkpoint = store.load(chunk);
+		assertEquals(0, checkpoint.getEpoch());
+		assertEquals(42, checkpoint.getBatch());
+		assertEquals(model.params(), checkpoint.getModel().params());
+		assertEquals(model.getUpdater().getStateViewArray(), checkpoint.getModel().getUpdater().getStateViewArray());
+	}
+
+	@Test
+	void concurrentAttemptsNeverInstallATornCheckpoint() throws Exception {
+		// The original attempt and a speculative duplicate of the same chunk on one host
+		MultiLayerNetwork original = trainedModel();
+		MultiLayerNetwork duplicate = trainedModel();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<Future<?>> saves = new ArrayList<>();
+			for (int i = 0; i < 20; i++) {
+				int batch = i;
+				saves.add(executor.submit(() -> {
+					store.save(chunk, original, 0, batch);
+					return null;
+				}));
+				saves.add(executor.submit(() -> {
+					store.save(chunk, duplicate, 1, batch);
+					return null;
+				}));
+			}
+			for (Future<?> save : saves) {
+				save.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		CheckpointStore.Checkpoint checkpoint = store.load(chunk);
+		assertNotNull(checkpoint);
+		assertEquals(checkpoint.getEpoch() == 0 ? original.params() : duplicate.params(), checkpoint.getModel().params());
+		try (Stream<Path> files = Files.list(dir)) {
+			assertEquals(1, files.count()); // No temp files left behind
+		}
+	}
+
+	@Test
+	void returnsNothingAfterDelete() throws Exception {
+		store.save(chunk, trainedModel(), 0, 1);
+		store.delete(chunk);
+
+		assertNull(store.load(chunk));
+	}
+
+}
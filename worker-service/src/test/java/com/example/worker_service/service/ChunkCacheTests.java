@@ -0,0 +1,92 @@
+package com.example.worker_service.service;
+
+import com.example.worker_service.model.ChunkDescriptor;
+import com.example.worker_service.util.CsvSchema;
+import com.example.worker_service.util.CustomDataSetIterator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.linalg.dataset.DataSet;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChunkCacheTests {
+
+	@TempDir
+	Path dir;
+
+	private final S3Client s3Client = mock(S3Client.class);
+
+	private ChunkCache cache(long maxBytes) throws Exception {
+		when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> new ResponseInputStream<>(
+				GetObjectResponse.builder().build(),
+				AbortableInputStream.create(new ByteArrayInputStream("1.5,2,0\n3,4.25,2\n5,6,1\n".getBytes(StandardCharsets.UTF_8)))));
+		ChunkCache cache = new ChunkCache();
+		ReflectionTestUtils.setField(cache, "s3Client", s3Client);
+		ReflectionTestUtils.setField(cache, "enabled", true);
+		ReflectionTestUtils.setField(cache, "dir", dir.toString());
+		ReflectionTestUtils.setField(cache, "maxBytes", maxBytes);
+		cache.init();
+		return cache;
+	}
+
+	private static ChunkDescriptor chunk(int index, String etag) {
+		ChunkDescriptor chunk = new ChunkDescriptor("run-1", "bucket", "data.csv", index * 100L, index * 100L + 100,
+				"daily,peak,label", index, 8);
+		chunk.setEtag(etag);
+		return chunk;
+	}
+
+	@Test
+	void secondOpenIsServedFromDiskWithTheSameData() throws Exception {
+		ChunkCache cache = cache(1 << 20);
+		CustomDataSetIterator downloaded = cache.open(chunk(0, "\"v1\""), CsvSchema.defaults(), 2);
+		CustomDataSetIterator cached = cache.open(chunk(0, "\"v1\""), CsvSchema.defaults(), 2);
+
+		verify(s3Client, times(1)).getObject(any(GetObjectRequest.class));
+		assertEquals(downloaded.numExamples(), cached.numExamples());
+		while (downloaded.hasNext()) {
+			DataSet expected = downloaded.next();
+			DataSet actual = cached.next();
+			assertArrayEquals(expected.getFeatures().dup().data().asFloat(), actual.getFeatures().dup().data().asFloat());
+			assertArrayEquals(expected.getLabels().dup().data().asFloat(), actual.getLabels().dup().data().asFloat());
+		}
+
+		// A new ETag means the object was replaced
+		assertNotEquals(ChunkCache.key(chunk(0, "\"v1\""), CsvSchema.defaults()), ChunkCache.key(chunk(0, "\"v2\""), CsvSchema.defaults()));
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedChunksPastTheCap() throws Exception {
+		ChunkCache probe = cache(1 << 20);
+		probe.open(chunk(0, "\"v1\""), CsvSchema.defaults(), 2);
+		long entryBytes = probe.getTotalBytes();
+
+		ChunkCache cache = cache(entryBytes * 2); // Reloads the entry already on disk
+		cache.open(chunk(1, "\"v1\""), CsvSchema.defaults(), 2);
+		cache.open(chunk(0, "\"v1\""), CsvSchema.defaults(), 2); // Hit, now most recently used
+		cache.open(chunk(2, "\"v1\""), CsvSchema.defaults(), 2); // Evicts chunk 1
+		assertEquals(entryBytes * 2, cache.getTotalBytes());
+
+		cache.open(chunk(0, "\"v1\""), CsvSchema.defaults(), 2);
+		cache.open(chunk(1, "\"v1\""), CsvSchema.defaults(), 2);
+		verify(s3Client, times(4)).getObject(any(GetObjectRequest.class));
+	}
+
+}
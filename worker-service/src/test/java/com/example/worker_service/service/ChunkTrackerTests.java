@@ -0,0 +1,108 @@
+package com.example.worker_service.service;
+
+import com.example.worker_service.model.ChunkDescriptor;
+import com.example.worker_service.model.ChunkState;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChunkTrackerTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+	private final ChunkTracker tracker = new ChunkTracker();
+
+	private final ChunkDescriptor chunk = new ChunkDescriptor("run-1", "bucket", "data.csv", 0, 100, "a,b,label", 3, 8);
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(tracker, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(tracker, "configuredWorkerId", "worker-1");
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(ChunkState.class))).thenReturn(new ChunkState(chunk));
+	}
+
+	@Test
+	void heartbeatsEachAttemptRatherThanTheLatestClaimant() {
+		// The original attempt and a speculative duplicate of the same chunk in one process
+		ChunkState.Attempt original = tracker.claim(chunk);
+		ChunkState.Attempt duplicate = tracker.claim(chunk);
+		assertNotEquals(original.getAttemptId(), duplicate.getAttemptId());
+
+		tracker.heartbeat();
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).updateMulti(query.capture(), any(UpdateDefinition.class), eq(ChunkState.class));
+		Document criteria = query.getValue().getQueryObject();
+		assertFalse(criteria.containsKey("workerId"));
+		List<?> attemptIds = (List<?>) criteria.get("running.attemptId", Document.class).get("$in");
+		assertEquals(2, attemptIds.size());
+	}
+
+	@Test
+	void failingAnAttemptLeavesTheOthersRunning() {
+		ChunkState.Attempt original = tracker.claim(chunk);
+		ChunkState.Attempt duplicate = tracker.claim(chunk);
+
+		tracker.fail(chunk, duplicate, new IllegalStateException("Out of memory"));
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(ChunkState.class));
+		assertEquals(duplicate.getAttemptId(), query.getValue().getQueryObject().get("running.attemptId"));
+		Document pulled = update.getValue().getUpdateObject().get("$pull", Document.class).get("running", Document.class);
+		assertEquals(duplicate.getAttemptId(), pulled.get("attemptId"));
+
+		tracker.heartbeat(); // Only the original is still heartbeating
+		verify(mongoTemplate).updateMulti(query.capture(), any(UpdateDefinition.class), eq(ChunkState.class));
+		List<?> attemptIds = (List<?>) query.getValue().getQueryObject().get("running.attemptId", Document.class).get("$in");
+		assertEquals(List.of(original.getAttemptId()), attemptIds);
+	}
+
+	@Test
+	void neverClaimsFinishedOrFailedChunk() {
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(ChunkState.class))).thenReturn(null);
+		when(mongoTemplate.exists(any(Query.class), eq(ChunkState.class))).thenReturn(true);
+
+		// A late redelivery of a chunk whose run already failed
+		assertNull(tracker.claim(chunk));
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).findAndModify(query.capture(), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(ChunkState.class));
+		List<?> states = (List<?>) query.getValue().getQueryObject().get("state", Document.class).get("$in");
+		assertEquals(List.of("PENDING", "ASSIGNED"), states);
+	}
+
+	@Test
+	void completesOnlyWhileTheAttemptIsStillRunning() {
+		ChunkState.Attempt attempt = tracker.claim(chunk);
+
+		tracker.complete(chunk, attempt);
+
+		// The master drops the attempts of a chunk it re-dispatches, a late complete must not close it
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).updateFirst(query.capture(), any(UpdateDefinition.class), eq(ChunkState.class));
+		assertEquals(attempt.getAttemptId(), query.getValue().getQueryObject().get("running.attemptId"));
+	}
+}
@@ -0,0 +1,53 @@
+package com.example.worker_service.service;
+
+import com.example.worker_service.model.ModelSpec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+class ModelTemplateCacheTests {
+
+	private final ModelTemplateCache cache = new ModelTemplateCache();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(cache, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(cache, "maxEntries", 2);
+	}
+
+	@Test
+	void clonesMatchAFreshNetworkAndTrainIndependently() {
+		ModelSpec spec = new ModelSpec();
+		MultiLayerNetwork first = cache.create(spec, 2, 3);
+		MultiLayerNetwork second = cache.create(spec, 2, 3);
+		assertNotSame(first, second);
+		assertEquals(ModelTemplateCache.build(spec, 2, 3).params(), first.params());
+
+		first.fit(new DataSet(Nd4j.rand(8, 2), Nd4j.eye(3).getRows(0, 1, 2, 0, 1, 2, 0, 1)));
+		assertNotEquals(first.params(), second.params());
+		assertEquals(second.params(), cache.create(spec, 2, 3).params());
+	}
+
+	@Test
+	void keepsOneTemplatePerLayoutUpToTheLimit() {
+		ModelSpec spec = new ModelSpec();
+		cache.create(spec, 2, 3);
+		cache.create(spec, 2, 3);
+		assertEquals(1, cache.size());
+
+		ModelSpec wider = new ModelSpec();
+		wider.setBatchSize(64);
+		cache.create(wider, 2, 3);
+		cache.create(spec, 4, 3);
+		assertEquals(2, cache.size());
+	}
+
+}
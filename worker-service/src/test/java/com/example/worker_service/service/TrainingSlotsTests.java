@@ -0,0 +1,41 @@
+package com.example.worker_service.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrainingSlotsTests {
+
+	private static final long GB = 1024L * 1024 * 1024;
+
+	@Test
+	void sizesByCoresWhenMemoryIsPlentiful() {
+		assertEquals(16, TrainingSlots.computeSlots(32, 64 * GB, 64 * GB, 2, GB / 2));
+	}
+
+	@Test
+	void sizesBySmallerOfHeapAndOffHeap() {
+		assertEquals(4, TrainingSlots.computeSlots(32, 8 * GB, 2 * GB, 2, GB / 2));
+		assertEquals(4, TrainingSlots.computeSlots(32, 2 * GB, 0, 2, GB / 2)); // Off-heap limit unknown
+	}
+
+	@Test
+	void alwaysAllowsOneTraining() {
+		assertEquals(1, TrainingSlots.computeSlots(1, GB / 4, GB / 4, 2, GB / 2));
+	}
+
+	@Test
+	void capsWideRequestsAtTotalSlots() throws Exception {
+		TrainingSlots slots = new TrainingSlots();
+		ReflectionTestUtils.setField(slots, "maxConcurrent", 3);
+		slots.init();
+
+		int taken = slots.acquire(8);
+		assertEquals(3, taken);
+		assertEquals(0, slots.available());
+		slots.release(taken);
+		assertEquals(3, slots.available());
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.example.worker_service.service;
+
+import com.example.worker_service.model.ChunkDescriptor;
+import com.example.worker_service.model.MergedModel;
+import com.example.worker_service.model.MessageCodec;
+import com.example.worker_service.model.ModelSpec;
+import com.example.worker_service.model.ParameterUpdate;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpdateCompressorTests {
+
+	private static UpdateCompressor compressor() {
+		UpdateCompressor compressor = new UpdateCompressor();
+		ReflectionTestUtils.setField(compressor, "defaultEncoding", "FLOAT32");
+		ReflectionTestUtils.setField(compressor, "feedbackRuns", 16);
+		return compressor;
+	}
+
+	private static ChunkDescriptor chunk(int index) {
+		return new ChunkDescriptor("run-1", "bucket", "data.csv", 0, 100, "a,label", index, 4);
+	}
+
+	@Test
+	void topKSendsLargestChangesAgainstTheMergedVersionTheChunkStartedFrom() throws Exception {
+		UpdateCompressor compressor = compressor();
+		ModelSpec spec = new ModelSpec();
+		spec.setUpdateEncoding("topk");
+		spec.setUpdateTopK(0.5);
+		MergedModel base = new MergedModel("run-1", 3, 4, 30, Map.of("0_W", new float[]{1f, 1f, 1f, 1f}));
+		float[] trained = {1.5f, 1f, 3f, 0.9f};
+
+		UpdateCompressor.Compressed delta = compressor.compress(chunk(3), spec, 10, Map.of("0_W", trained.clone()), base);
+		ParameterUpdate decoded = MessageCodec.decodeUpdate(MessageCodec.encodeUpdate(delta.getUpdate()));
+
+		assertEquals(3, decoded.getBaseVersion());
+		float[] received = base.getParams().get("0_W").clone(); // What the master rebuilds from its copy of version 3
+		float[] change = decoded.getParams().get("0_W");
+		for (int i = 0; i < change.length; i++) {
+			received[i] += change[i];
+		}
+		// Two entries of four, the largest changes go out and the rest keep the base's values
+		assertArrayEquals(new float[]{1.5f, 1f, 3f, 1f}, received);
+		assertTrue(delta.getDrift() > 0 && delta.getDrift() < 0.05);
+	}
+
+	@Test
+	void carriesLeftOutEntriesIntoTheNextDelta() {
+		UpdateCompressor compressor = compressor();
+		ModelSpec spec = new ModelSpec();
+		spec.setUpdateEncoding("TOPK");
+		spec.setUpdateTopK(0.5);
+		MergedModel first = new MergedModel("run-1", 3, 4, 30, Map.of("0_W", new float[]{1f, 1f, 1f, 1f}));
+		compressor.compress(chunk(3), spec, 10, Map.of("0_W", new float[]{1.5f, 1f, 3f, 0.9f}), first);
+
+		// The next chunk trains nothing new, its delta is what the first one left out
+		spec.setUpdateTopK(0.25);
+		MergedModel second = new MergedModel("run-1", 4, 4, 40, Map.of("0_W", new float[]{2f, 2f, 2f, 2f}));
+		UpdateCompressor.Compressed delta = compressor.compress(chunk(2), spec, 10,
+				Map.of("0_W", new float[]{2f, 2f, 2f, 2f}), second);
+
+		assertEquals(4, delta.getUpdate().getBaseVersion());
+		assertArrayEquals(new float[]{0f, 0f, 0f, 0.9f - 1f}, delta.getUpdate().getParams().get("0_W"));
+	}
+
+	@Test
+	void sendsCompleteWithoutSharedBase() {
+		UpdateCompressor compressor = compressor();
+		ModelSpec spec = new ModelSpec();
+		spec.setUpdateEncoding("THRESHOLD");
+		Map<String, float[]> params = Map.of("0_W", new float[]{0.1f, -0.3f, 2f});
+
+		// Started from scratch or a checkpoint, or from a model of another layout
+		assertEquals(-1, compressor.compress(chunk(0), spec, 10, params, null).getUpdate().getBaseVersion());
+		MergedModel other = new MergedModel("run-1", 2, 4, 20, Map.of("0_W", new float[]{0f, 0f}));
+		UpdateCompressor.Compressed compressed = compressor.compress(chunk(0), spec, 10, params, other);
+		assertEquals(-1, compressed.getUpdate().getBaseVersion());
+		assertArrayEquals(params.get("0_W"), compressed.getUpdate().getParams().get("0_W"));
+		assertEquals(0.0, compressed.getDrift());
+	}
+
+	@Test
+	void halfPrecisionReportsRoundingDrift() {
+		UpdateCompressor compressor = compressor();
+		ModelSpec spec = new ModelSpec();
+		spec.setUpdateEncoding("BF16");
+		Map<String, float[]> params = Map.of("0_W", new float[]{0.1f, -0.3f, 2f});
+
+		UpdateCompressor.Compressed compressed = compressor.compress(chunk(0), spec, 10, params, null);
+
+		assertEquals(-1, compressed.getUpdate().getBaseVersion());
+		assertTrue(compressed.getDrift() > 0 && compressed.getDrift() < 1e-2);
+		assertEquals(0.0, compressor.compress(chunk(1), new ModelSpec(), 10, params, null).getDrift());
+	}
+
+	@Test
+	void findsKthLargestMagnitude() {
+		Map<String, float[]> deltas = Map.of("0_W", new float[]{0.5f, -3f, 0f, 2f}, "0_b", new float[]{-1f, 2f});
+
+		assertEquals(3f, UpdateCompressor.kthLargest(deltas, 1));
+		assertEquals(2f, UpdateCompressor.kthLargest(deltas, 3));
+		assertEquals(0f, UpdateCompressor.kthLargest(deltas, 6));
+	}
+}
@@ -0,0 +1,95 @@
+package com.example.worker_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvRowParserTests {
+
+	private static float parse(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+		return CsvRowParser.parseFloat(bytes, 0, bytes.length);
+	}
+
+	@Test
+	void parsesFloatsLikeTheJdk() {
+		for (String value : new String[]{"0", "-0.5", "12.75", " 3.25 ", "0.000123", "1e3", "2.5E-4", "+7",
+				"123456789012345678901", "3.4028235e38", "1e-45", ".5", "5."}) {
+			assertEquals(Float.parseFloat(value.strip()), parse(value), value);
+		}
+	}
+
+	@Test
+	void rejectsNonNumbers() {
+		for (String value : new String[]{"", "abc", "1.2.3", "1e", "-", "1,5"}) {
+			assertTrue(Float.isNaN(parse(value)), value);
+		}
+	}
+
+	@Test
+	void parsesSchemaColumnsAndCountsMalformedRows() {
+		CsvSchema schema = CsvSchema.fromHeader("a,label,b", "label", 3, List.of("Low", "Medium", "High"));
+		CsvRowParser parser = new CsvRowParser(schema);
+		float[] features = new float[2];
+
+		byte[] row = "1.5,2,-4".getBytes(StandardCharsets.US_ASCII);
+		assertEquals(2, parser.parseRow(row, 0, row.length, features, 0));
+		assertArrayEquals(new float[]{1.5f, -4f}, features);
+
+		for (String bad : new String[]{"1,7,1", "x,1,1", "1,1", "1,-1,1"}) {
+			byte[] bytes = bad.getBytes(StandardCharsets.US_ASCII);
+			assertEquals(CsvRowParser.MALFORMED, parser.parseRow(bytes, 0, bytes.length, features, 0), bad);
+		}
+		assertEquals(4, parser.getMalformedRows());
+	}
+
+	@Test
+	void rejectsFractionalAndOutOfRangeLabels() {
+		CsvSchema schema = CsvSchema.fromHeader("a,label", "label", 3, null);
+		CsvRowParser parser = new CsvRowParser(schema);
+		float[] features = new float[1];
+
+		for (String bad : new String[]{"1,1.7", "1,-0.5", "1,2.0001", "1,3", "1,1e9"}) {
+			byte[] bytes = bad.getBytes(StandardCharsets.US_ASCII);
+			assertEquals(CsvRowParser.MALFORMED, parser.parseRow(bytes, 0, bytes.length, features, 0), bad);
+		}
+		byte[] whole = "1,2.0".getBytes(StandardCharsets.US_ASCII);
+		assertEquals(2, parser.parseRow(whole, 0, whole.length, features, 0));
+		assertEquals(5, parser.getMalformedRows());
+	}
+
+	@Test
+	void selectsFeatureColumnsByName() {
+		CsvSchema schema = CsvSchema.fromHeader("id,a,b,label", "label", List.of("b", "a"), 2, null);
+		assertArrayEquals(new int[]{2, 1}, schema.getFeatureColumns());
+		assertEquals(3, schema.getLabelColumn());
+		assertEquals(List.of("0", "1"), schema.getLabelNames());
+
+		float[] features = new float[2];
+		byte[] row = "7,1.5,2.5,1".getBytes(StandardCharsets.US_ASCII);
+		assertEquals(1, new CsvRowParser(schema).parseRow(row, 0, row.length, features, 0));
+		assertArrayEquals(new float[]{2.5f, 1.5f}, features);
+	}
+
+	@Test
+	void readsLinesAcrossBufferBoundaries() throws Exception {
+		String longLine = "9".repeat(200_000);
+		byte[] csv = ("a,b\r\n" + longLine + "\nlast").getBytes(StandardCharsets.US_ASCII);
+		try (CsvLineReader reader = new CsvLineReader(new ByteArrayInputStream(csv))) {
+			assertTrue(reader.nextLine());
+			assertEquals(3, reader.lineEnd() - reader.lineStart());
+			assertTrue(reader.nextLine());
+			assertEquals(longLine.length(), reader.lineEnd() - reader.lineStart());
+			assertTrue(reader.nextLine());
+			assertEquals("last", new String(reader.buffer(), reader.lineStart(), 4, StandardCharsets.US_ASCII));
+			assertFalse(reader.nextLine());
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.example.worker_service.util;
+
+import org.junit.jupiter.api.Test;
+import org.nd4j.linalg.dataset.DataSet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CustomDataSetIteratorTests {
+
+	private static CustomDataSetIterator iterator(String csv, boolean skipHeader, int batchSize) throws Exception {
+		return new CustomDataSetIterator(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), skipHeader,
+				CsvSchema.defaults(), batchSize);
+	}
+
+	@Test
+	void assemblesMinibatchesFromColumnarStorage() throws Exception {
+		CustomDataSetIterator iterator = iterator("daily,peak,label\n1.5,2,0\n3,4.25,2\n5,6,1\n", true, 2);
+
+		assertEquals(3, iterator.numExamples());
+		DataSet first = iterator.next();
+		assertArrayEquals(new long[]{2, 2}, first.getFeatures().shape());
+		assertArrayEquals(new float[]{1.5f, 2f, 3f, 4.25f}, first.getFeatures().dup().data().asFloat());
+		assertArrayEquals(new float[]{1, 0, 0, 0, 0, 1}, first.getLabels().dup().data().asFloat());
+
+		DataSet last = iterator.next();
+		assertEquals(1, last.numExamples());
+		assertArrayEquals(new float[]{0, 1, 0}, last.getLabels().dup().data().asFloat());
+		assertFalse(iterator.hasNext());
+
+		iterator.reset();
+		assertTrue(iterator.hasNext());
+	}
+
+	@Test
+	void rangesWithoutHeaderKeepFirstRow() throws Exception {
+		CustomDataSetIterator iterator = iterator("1,2,0\n3,4,1\n\n", false, 32);
+
+		assertEquals(2, iterator.numExamples());
+	}
+
+	@Test
+	void countsRowsWithFractionalLabelsInLoadStats() throws Exception {
+		CustomDataSetIterator iterator = iterator("1,2,0\n3,4,1.7\n5,6,2\n", false, 32);
+
+		assertEquals(2, iterator.numExamples());
+		assertEquals(1, iterator.getMalformedRows());
+		assertEquals(1, iterator.getLoadStats().getMalformedRows());
+	}
+
+	@Test
+	void rejectsChunksLargerThanOneArray() throws Exception {
+		assertEquals(6, CustomDataSetIterator.cells(3, 2));
+		// 2^20 rows of 4096 features overflow an int to 0
+		IOException tooLarge = assertThrows(IOException.class, () -> CustomDataSetIterator.cells(1 << 20, 4096));
+		assertTrue(tooLarge.getMessage().startsWith("Chunk too large"));
+
+		// A cache header whose row count overflows int arithmetic is not trusted
+		Path file = Files.createTempFile("chunk", ".bin");
+		try {
+			ByteBuffer header = ByteBuffer.allocate(28).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(0x43484E4B).putInt(1).putInt(1 << 30).putInt(4).putInt(3).putLong(0);
+			Files.write(file, header.array());
+			assertThrows(IOException.class, () -> CustomDataSetIterator.load(file, List.of("0", "1", "2"), 32));
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
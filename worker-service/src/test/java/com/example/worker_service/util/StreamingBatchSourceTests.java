@@ -0,0 +1,90 @@
+package com.example.worker_service.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.linalg.dataset.DataSet;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StreamingBatchSourceTests {
+
+	@TempDir
+	Path spillDir;
+
+	private PrefetchingDataSetIterator iterator(int rows, int batchSize) throws Exception {
+		StringBuilder csv = new StringBuilder("daily,peak,label\n");
+		for (int i = 0; i < rows; i++) {
+			csv.append(i).append(',').append(i * 2).append(',').append(i % 3).append('\n');
+		}
+		StreamingBatchSource source = new StreamingBatchSource(
+				new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), true, CsvSchema.defaults(),
+				batchSize, spillDir);
+		return new PrefetchingDataSetIterator(source, 2, 3);
+	}
+
+	private static int countExamples(PrefetchingDataSetIterator iterator) {
+		int examples = 0;
+		while (iterator.hasNext()) {
+			examples += iterator.next().numExamples();
+		}
+		return examples;
+	}
+
+	@Test
+	void replaysEpochsFromSpillFileInOrder() throws Exception {
+		try (PrefetchingDataSetIterator iterator = iterator(100, 32)) {
+			assertEquals(100, countExamples(iterator));
+			iterator.reset();
+			for (int batch = 0; batch < 4; batch++) {
+				DataSet next = iterator.next();
+				float firstRow = batch * 32;
+				assertArrayEquals(new float[]{firstRow, firstRow * 2}, next.getFeatures().getRow(0).toFloatVector());
+			}
+			assertEquals(8, iterator.getStats().getBatches());
+		}
+	}
+
+	@Test
+	void servesRequestedExampleCountAcrossMinibatches() throws Exception {
+		try (PrefetchingDataSetIterator iterator = iterator(100, 32)) {
+			DataSet joined = iterator.next(50); // One and a half prefetched minibatches
+			assertEquals(50, joined.numExamples());
+			assertArrayEquals(new float[]{49, 98}, joined.getFeatures().getRow(49).toFloatVector());
+
+			DataSet rest = iterator.next(10); // Served from the remainder of the second one
+			assertEquals(10, rest.numExamples());
+			assertArrayEquals(new float[]{50, 100}, rest.getFeatures().getRow(0).toFloatVector());
+
+			assertEquals(40, iterator.next(64).numExamples()); // Short at the end of the data
+			assertFalse(iterator.hasNext());
+			assertThrows(IllegalArgumentException.class, () -> iterator.next(0));
+		}
+	}
+
+	@Test
+	void resetDuringFirstEpochKeepsWholeChunk() throws Exception {
+		try (PrefetchingDataSetIterator iterator = iterator(1000, 10)) {
+			iterator.next();
+			iterator.reset();
+			assertEquals(1000, countExamples(iterator));
+		}
+	}
+
+	@Test
+	void closeRemovesSpillFile() throws Exception {
+		PrefetchingDataSetIterator iterator = iterator(10, 4);
+		countExamples(iterator);
+		iterator.close();
+		try (var files = Files.list(spillDir)) {
+			assertEquals(0, files.count());
+		}
+	}
+}